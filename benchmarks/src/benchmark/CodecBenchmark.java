@@ -0,0 +1,74 @@
+package benchmark;
+
+import geohash.GeoHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding points and decoding geohashes, as strings and as cell ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CodecBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12"})
+    public int precision;
+
+    private final double[] lats = new double[POINTS];
+    private final double[] lons = new double[POINTS];
+    private final String[] hashes = new String[POINTS];
+    private final long[] cells = new long[POINTS];
+    private final double[] bbox = new double[4];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+            cells[i] = GeoHash.encodeCell(lats[i], lons[i], precision);
+            hashes[i] = GeoHash.toGeoHash(cells[i]);
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (POINTS - 1);
+    }
+
+    @Benchmark
+    public String encode() {
+        int i = next();
+        return GeoHash.encode(lats[i], lons[i], precision);
+    }
+
+    @Benchmark
+    public long encodeCell() {
+        int i = next();
+        return GeoHash.encodeCell(lats[i], lons[i], precision);
+    }
+
+    @Benchmark
+    public double[] decode() {
+        return GeoHash.decode_bbox(hashes[next()]);
+    }
+
+    @Benchmark
+    public double[] decodeCell() {
+        GeoHash.decodeCell(cells[next()], bbox);
+        return bbox;
+    }
+
+}
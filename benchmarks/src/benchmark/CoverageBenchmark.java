@@ -0,0 +1,125 @@
+package benchmark;
+
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import polygon.BufferedCover;
+import polygon.CoverPyramid;
+import polygon.GeoHashesInPolygon;
+import polygon.GeoHashesInPolygon.Engine;
+import polygon.PointInPolygon;
+import polygon.PreparedPolygon;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full polygon coverage for the sample polygons and a generated 10k vertex polygon.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CoverageBenchmark {
+
+    @Param({"WYOMING_CO", "WEIRD", "NO_CO", "STAR_10000"})
+    public String polygon;
+
+    @Param({"3", "4", "5", "6"})
+    public int precision;
+
+    private Coordinates[] vertices;
+    private PreparedPolygon prepared;
+
+    @Setup
+    public void setUp() {
+        vertices = Polygons.named(polygon);
+        prepared = new PreparedPolygon(vertices);
+    }
+
+    /**
+     * the original grid scan: every cell center of the bounding box tested against every
+     * edge with {@link PointInPolygon}, without an edge index
+     */
+    @Benchmark
+    public long baseline() {
+        double[] bounding = GeoHashUtils.polyToBB(vertices);
+        double[] bbox = new double[4];
+        long count = 0;
+        long top = GeoHash.latIndex(bounding[2], precision);
+        for (long row = GeoHash.latIndex(bounding[0], precision); row <= top; row++) {
+            for (long column = GeoHash.lonIndex(bounding[1], precision);
+                 column <= GeoHash.lonIndex(bounding[3], precision); column++) {
+                GeoHash.decodeCell(GeoHash.cellAt(row, column, precision), bbox);
+                if (PointInPolygon.pointInPolygon((bbox[1] + bbox[3]) / 2, (bbox[0] + bbox[2]) / 2, vertices)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * every cell center tested through the band index of a {@link PreparedPolygon},
+     * including preparing the polygon
+     */
+    @Benchmark
+    public Set<String> pointInPolygon() {
+        return GeoHashesInPolygon.geohashesInPolygon(vertices, precision, Engine.POINT_IN_POLYGON);
+    }
+
+    @Benchmark
+    public Set<String> scanline() {
+        return GeoHashesInPolygon.geohashesInPolygon(vertices, precision, Engine.SCANLINE);
+    }
+
+    /**
+     * cell ids streamed from the compact descent, without building a set
+     */
+    @Benchmark
+    public long streamedCells() {
+        return GeoHashesInPolygon.cells(prepared, precision).count();
+    }
+
+    @Benchmark
+    public CellSet compact() {
+        return GeoHashesInPolygon.coverage(prepared, precision);
+    }
+
+    /**
+     * every precision from 2 up to the parameter, one coverage call each
+     */
+    @Benchmark
+    public CellSet[] levels() {
+        CellSet[] levels = new CellSet[precision - 1];
+        for (int p = 2; p <= precision; p++) {
+            levels[p - 2] = GeoHashesInPolygon.coverage(prepared, p);
+        }
+        return levels;
+    }
+
+    /**
+     * the same levels in one pass
+     */
+    @Benchmark
+    public CoverPyramid pyramid() {
+        return CoverPyramid.build(prepared, 2, precision);
+    }
+
+    /**
+     * the cover grown by a margin of four cells
+     */
+    @Benchmark
+    public CellSet buffered() {
+        return BufferedCover.buffer(prepared, precision, 4);
+    }
+
+}
@@ -0,0 +1,61 @@
+package benchmark;
+
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stepping to the neighbors of a geohash, as strings and as cell ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NeighborBenchmark {
+
+    private static final int POINTS = 1024;
+    private static final int[][] DIRECTIONS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+    @Param({"1", "4", "8", "12"})
+    public int precision;
+
+    private final String[] hashes = new String[POINTS];
+    private final long[] cells = new long[POINTS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2);
+        for (int i = 0; i < POINTS; i++) {
+            cells[i] = GeoHash.encodeCell(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, precision);
+            hashes[i] = GeoHash.toGeoHash(cells[i]);
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (POINTS - 1);
+    }
+
+    @Benchmark
+    public String neighbor() {
+        int i = next();
+        return GeoHashUtils.neighbor(hashes[i], DIRECTIONS[i & 7]);
+    }
+
+    @Benchmark
+    public long neighborCell() {
+        int i = next();
+        int[] direction = DIRECTIONS[i & 7];
+        return GeoHashUtils.neighbor(cells[i], direction[0], direction[1]);
+    }
+
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import coords.Coordinates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import polygon.PointInPolygon;
+import polygon.PreparedPolygon;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single point in polygon test as the vertex count grows, against the plain vertex
+ * array and against the {@link PreparedPolygon} edge index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PointInPolygonBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"4", "16", "64", "256", "1024", "10000"})
+    public int vertices;
+
+    private Coordinates[] polygon;
+    private PreparedPolygon prepared;
+    private final double[] lats = new double[POINTS];
+    private final double[] lons = new double[POINTS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        polygon = Polygons.star(vertices);
+        prepared = new PreparedPolygon(polygon);
+        Random random = new Random(3);
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = 38.5 + random.nextDouble() * 4;
+            lons[i] = -107 + random.nextDouble() * 4;
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (POINTS - 1);
+    }
+
+    @Benchmark
+    public boolean pointInPolygon() {
+        int i = next();
+        return PointInPolygon.pointInPolygon(lons[i], lats[i], polygon);
+    }
+
+    @Benchmark
+    public boolean prepared() {
+        int i = next();
+        return prepared.contains(lats[i], lons[i]);
+    }
+
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import coords.Coordinates;
+
+import java.util.Random;
+
+/**
+ * Polygons shared by the benchmarks: the samples from the unit tests and generated
+ * star shaped polygons of any vertex count.
+ */
+public class Polygons {
+
+    //a triangle over northern colorado and some of wyoming
+    static final Coordinates[] WYOMING_CO = {
+            new Coordinates(44.99588261816546f, -109.248046875f),
+            new Coordinates(38.238180119798635f, -109.1162109375f),
+            new Coordinates(38.41055825094609f, -102.83203125f)
+    };
+
+    static final Coordinates[] WEIRD = {
+            new Coordinates(40.6639728763869f, -105.0567626953125f),
+            new Coordinates(40.49918094806632f, -105.38360595703125f),
+            new Coordinates(40.0717663466261f, -104.4854736328125f),
+            new Coordinates(40.29419163838167f, -104.47448730468749f),
+            new Coordinates(40.30466538259176f, -104.765625f),
+            new Coordinates(40.47202439692057f, -104.6392822265625f),
+            new Coordinates(40.46575594018434f, -104.94415283203125f)
+    };
+
+    static final Coordinates[] NO_CO = {
+            new Coordinates(39.56758783088903f, -106.1444091796875f),
+            new Coordinates(40.942564441333296f, -106.1444091796875f),
+            new Coordinates(40.942564441333296f, -103.88671875f),
+            new Coordinates(39.56758783088903f, -103.88671875f)
+    };
+
+    /**
+     * A star shaped polygon over northern colorado with jittered radii, so every vertex
+     * count covers about the same area. The seed is fixed so runs are comparable.
+     */
+    static Coordinates[] star(int vertices) {
+        Random random = new Random(vertices);
+        Coordinates[] polygon = new Coordinates[vertices];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double radius = 1 + 0.5 * random.nextDouble();
+            polygon[i] = new Coordinates(40.5 + radius * Math.sin(angle), -105 + radius * Math.cos(angle), 0, 0);
+        }
+        return polygon;
+    }
+
+    /**
+     * @param name one of WYOMING_CO, WEIRD, NO_CO or STAR_n for a generated polygon of n vertices
+     */
+    static Coordinates[] named(String name) {
+        switch (name) {
+            case "WYOMING_CO":
+                return WYOMING_CO;
+            case "WEIRD":
+                return WEIRD;
+            case "NO_CO":
+                return NO_CO;
+            default:
+                if (name.startsWith("STAR_")) {
+                    return star(Integer.parseInt(name.substring("STAR_".length())));
+                }
+                throw new IllegalArgumentException("unknown polygon " + name);
+        }
+    }
+
+}
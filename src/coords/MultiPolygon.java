@@ -0,0 +1,107 @@
+package coords;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Polygons with holes: each polygon is an outer ring followed by the rings of its holes.
+ * <p>
+ * Rings may be given in either orientation. Longitudes are planar, as in GeoJSON: an edge
+ * runs straight from one longitude to the next, so a ring from -100 to 100 spans 200
+ * degrees. Rings that cross the antimeridian instead of being split at it are read with
+ * {@link #wrapping}, which joins consecutive vertices the shorter way around.
+ */
+public final class MultiPolygon {
+
+    private final List<PackedRing[]> polygons;
+    private final boolean wrapping;
+
+    private MultiPolygon(List<PackedRing[]> polygons, boolean wrapping) {
+        this.polygons = polygons;
+        this.wrapping = wrapping;
+    }
+
+    public static MultiPolygon of(PackedRing outer, PackedRing... holes) {
+        return new MultiPolygon(Collections.singletonList(rings(outer, holes)), false);
+    }
+
+    /**
+     * a polygon whose consecutive vertices are joined the shorter way around, so no edge
+     * spans more than 180 degrees of longitude and rings may cross the antimeridian
+     */
+    public static MultiPolygon wrapping(PackedRing outer, PackedRing... holes) {
+        return new MultiPolygon(Collections.singletonList(rings(outer, holes)), true);
+    }
+
+    public static MultiPolygon of(Coordinates[] outer, Coordinates[]... holes) {
+        PackedRing[] packed = new PackedRing[holes.length];
+        for (int i = 0; i < holes.length; i++) {
+            packed[i] = PackedRing.of(holes[i]);
+        }
+        return of(PackedRing.of(outer), packed);
+    }
+
+    /**
+     * @return a multipolygon with one more polygon, wrapping when this one is
+     */
+    public MultiPolygon and(PackedRing outer, PackedRing... holes) {
+        List<PackedRing[]> more = new ArrayList<>(polygons);
+        more.add(rings(outer, holes));
+        return new MultiPolygon(Collections.unmodifiableList(more), wrapping);
+    }
+
+    /**
+     * @return true when vertices are joined the shorter way around the antimeridian
+     */
+    public boolean isWrapping() {
+        return wrapping;
+    }
+
+    private static PackedRing[] rings(PackedRing outer, PackedRing[] holes) {
+        PackedRing[] rings = new PackedRing[holes.length + 1];
+        rings[0] = outer;
+        System.arraycopy(holes, 0, rings, 1, holes.length);
+        return rings;
+    }
+
+    /**
+     * @return number of polygons
+     */
+    public int size() {
+        return polygons.size();
+    }
+
+    /**
+     * @return outer ring of polygon p
+     */
+    public PackedRing outer(int p) {
+        return polygons.get(p)[0];
+    }
+
+    /**
+     * @return number of holes in polygon p
+     */
+    public int holeCount(int p) {
+        return polygons.get(p).length - 1;
+    }
+
+    /**
+     * @return hole h of polygon p
+     */
+    public PackedRing hole(int p, int h) {
+        return polygons.get(p)[h + 1];
+    }
+
+    /**
+     * @return number of rings over all polygons, outer rings and holes
+     */
+    public int ringCount() {
+        int count = 0;
+        for (PackedRing[] rings : polygons) {
+            count += rings.length;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,109 @@
+package coords;
+
+import java.util.Arrays;
+
+/**
+ * A polygon ring packed into a single array of interleaved latitudes and longitudes,
+ * [lat0, lon0, lat1, lon1, ...], so walking the vertices reads one array in order
+ * instead of following a {@link Coordinates}, a {@link LatLonPair} and its doubles per vertex.
+ * <p>
+ * The ring is immutable; the factories copy their input.
+ */
+public final class PackedRing {
+
+    private final double[] latLons;
+
+    private PackedRing(double[] latLons) {
+        this.latLons = latLons;
+    }
+
+    /**
+     * @param latLons interleaved latitudes and longitudes, in degrees
+     */
+    public static PackedRing of(double... latLons) {
+        if (latLons.length % 2 != 0) {
+            throw new IllegalArgumentException("odd number of values for latitude, longitude pairs");
+        }
+        return new PackedRing(latLons.clone());
+    }
+
+    /**
+     * @param lats latitudes, in degrees
+     * @param lons longitudes, in degrees, as many as lats
+     */
+    public static PackedRing of(double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("latitude and longitude columns differ in length");
+        }
+        double[] latLons = new double[2 * lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            latLons[2 * i] = lats[i];
+            latLons[2 * i + 1] = lons[i];
+        }
+        return new PackedRing(latLons);
+    }
+
+    public static PackedRing of(Coordinates[] polygon) {
+        double[] latLons = new double[2 * polygon.length];
+        for (int i = 0; i < polygon.length; i++) {
+            latLons[2 * i] = polygon[i].getLatitude();
+            latLons[2 * i + 1] = polygon[i].getLongitude();
+        }
+        return new PackedRing(latLons);
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int size() {
+        return latLons.length / 2;
+    }
+
+    /**
+     * @return latitude of vertex i, in degrees
+     */
+    public double latitude(int i) {
+        return latLons[2 * i];
+    }
+
+    /**
+     * @return longitude of vertex i, in degrees
+     */
+    public double longitude(int i) {
+        return latLons[2 * i + 1];
+    }
+
+    /**
+     * @return the vertices as {@link Coordinates}, for code that still needs them
+     */
+    public Coordinates[] toCoordinates() {
+        Coordinates[] polygon = new Coordinates[size()];
+        for (int i = 0; i < polygon.length; i++) {
+            polygon[i] = new Coordinates(latitude(i), longitude(i), 0, 0);
+        }
+        return polygon;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof PackedRing && Arrays.equals(latLons, ((PackedRing) o).latLons);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(latLons);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("PackedRing[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(latitude(i)).append(" | ").append(longitude(i));
+        }
+        return builder.append(']').toString();
+    }
+
+}
@@ -0,0 +1,339 @@
+package geohash;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An immutable set of geohash cells, of any mix of precisions, stored as sorted ranges.
+ * <p>
+ * Every cell is the range of 12 character cells it contains, [start, end) in the
+ * geohash bits of {@link GeoHash#MAX_PRECISION}. Because geohashes follow the Z-order
+ * curve, the cells of a cover fall into long contiguous runs, and touching or
+ * overlapping ranges are merged. The set is one long[] holding start, end pairs, so
+ * membership is a binary search and set algebra is a linear merge, whatever the
+ * precisions of the cells that went in.
+ */
+public class CellSet {
+
+    private static final int LEAF_BITS = GeoHash.MAX_PRECISION * GeoHash.BITS_PER_CHAR;
+    private static final CellSet EMPTY = new CellSet(new long[0]);
+
+    /**
+     * start, end pairs in ascending order, never touching
+     */
+    private final long[] ranges;
+
+    private CellSet(long[] ranges) {
+        this.ranges = ranges;
+    }
+
+    public static CellSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param cells cell ids of any precision, in any order
+     */
+    public static CellSet of(long... cells) {
+        // sort by range start, coarser cells after finer ones that start at the same place
+        long[] keys = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            int precision = GeoHash.cellPrecision(cells[i]);
+            keys[i] = ((start(cells[i]) << 4) | (GeoHash.MAX_PRECISION - precision)) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        long[] ranges = new long[2 * cells.length];
+        int size = 0;
+        for (long key : keys) {
+            key ^= Long.MIN_VALUE;
+            long start = key >>> 4;
+            long end = start + (1L << ((key & 15) * GeoHash.BITS_PER_CHAR));
+            size = append(ranges, size, start, end);
+        }
+        return new CellSet(Arrays.copyOf(ranges, size));
+    }
+
+    public static CellSet fromGeohashes(Collection<String> hashes) {
+        long[] cells = new long[hashes.size()];
+        int i = 0;
+        for (String hash : hashes) {
+            cells[i++] = GeoHash.toCell(hash);
+        }
+        return of(cells);
+    }
+
+    /**
+     * append [start, end) to sorted ranges, merging with the last range when they touch
+     *
+     * @return new size of ranges
+     */
+    private static int append(long[] ranges, int size, long start, long end) {
+        if (size > 0 && start <= ranges[size - 1]) {
+            ranges[size - 1] = Math.max(ranges[size - 1], end);
+            return size;
+        }
+        ranges[size] = start;
+        ranges[size + 1] = end;
+        return size + 2;
+    }
+
+    private static long start(long cell) {
+        return GeoHash.leafStart(cell);
+    }
+
+    private static long end(long cell) {
+        return GeoHash.leafEnd(cell);
+    }
+
+    /**
+     * @return index of the start of the last range starting at or before leaf, or -2
+     */
+    private int floor(long leaf) {
+        int low = 0, high = ranges.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranges[2 * mid] <= leaf) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return 2 * high;
+    }
+
+    /**
+     * @return true when the whole cell is in the set
+     */
+    public boolean contains(long cell) {
+        int i = floor(start(cell));
+        return i >= 0 && end(cell) <= ranges[i + 1];
+    }
+
+    public boolean contains(String hash) {
+        return contains(GeoHash.toCell(hash));
+    }
+
+    /**
+     * @return true when the point falls in a cell of the set
+     */
+    public boolean contains(double lat, double lon) {
+        return contains(GeoHash.encodeCell(lat, lon, GeoHash.MAX_PRECISION));
+    }
+
+    /**
+     * @return true when any part of the cell is in the set
+     */
+    public boolean intersects(long cell) {
+        long start = start(cell);
+        int i = floor(end(cell) - 1);
+        return i >= 0 && ranges[i + 1] > start;
+    }
+
+    public CellSet union(CellSet other) {
+        long[] result = new long[ranges.length + other.ranges.length];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < ranges.length || j < other.ranges.length) {
+            if (j == other.ranges.length || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+                size = append(result, size, ranges[i], ranges[i + 1]);
+                i += 2;
+            } else {
+                size = append(result, size, other.ranges[j], other.ranges[j + 1]);
+                j += 2;
+            }
+        }
+        return new CellSet(Arrays.copyOf(result, size));
+    }
+
+    public CellSet intersection(CellSet other) {
+        long[] result = new long[ranges.length + other.ranges.length];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < ranges.length && j < other.ranges.length) {
+            long start = Math.max(ranges[i], other.ranges[j]);
+            long end = Math.min(ranges[i + 1], other.ranges[j + 1]);
+            if (start < end) {
+                size = append(result, size, start, end);
+            }
+            if (ranges[i + 1] < other.ranges[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return new CellSet(Arrays.copyOf(result, size));
+    }
+
+    public CellSet difference(CellSet other) {
+        long[] result = new long[ranges.length + other.ranges.length];
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            long start = ranges[i];
+            long end = ranges[i + 1];
+            while (j < other.ranges.length && other.ranges[j + 1] <= start) {
+                j += 2;
+            }
+            int k = j;
+            while (start < end && k < other.ranges.length && other.ranges[k] < end) {
+                if (other.ranges[k] > start) {
+                    size = append(result, size, start, other.ranges[k]);
+                }
+                start = Math.max(start, other.ranges[k + 1]);
+                k += 2;
+            }
+            if (start < end) {
+                size = append(result, size, start, end);
+            }
+        }
+        return new CellSet(Arrays.copyOf(result, size));
+    }
+
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    /**
+     * @return number of contiguous ranges stored
+     */
+    public int rangeCount() {
+        return ranges.length / 2;
+    }
+
+    /**
+     * @return number of cells of the given precision entirely inside the set
+     */
+    public long cellCount(int precision) {
+        int shift = LEAF_BITS - precision * GeoHash.BITS_PER_CHAR;
+        long count = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            long first = (ranges[i] + (1L << shift) - 1) >>> shift;
+            long last = ranges[i + 1] >>> shift;
+            count += Math.max(0, last - first);
+        }
+        return count;
+    }
+
+    /**
+     * @return the fewest cells, of mixed precision, that make up the set, in ascending order
+     */
+    public long[] toCells() {
+        long[] cells = new long[16];
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            long start = ranges[i];
+            long end = ranges[i + 1];
+            while (start < end) {
+                int level = GeoHash.MAX_PRECISION;
+                while (level > 0) {
+                    int shift = LEAF_BITS - (level - 1) * GeoHash.BITS_PER_CHAR;
+                    if ((start & ((1L << shift) - 1)) != 0 || start + (1L << shift) > end) {
+                        break;
+                    }
+                    level--;
+                }
+                int shift = LEAF_BITS - level * GeoHash.BITS_PER_CHAR;
+                if (size == cells.length) {
+                    cells = Arrays.copyOf(cells, size * 2);
+                }
+                cells[size++] = GeoHash.cell(start >>> shift, level);
+                start += 1L << shift;
+            }
+        }
+        return Arrays.copyOf(cells, size);
+    }
+
+    /**
+     * @return every cell of the given precision entirely inside the set, in ascending order
+     */
+    public long[] toCells(int precision) {
+        long count = cellCount(precision);
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(count + " cells do not fit in an array");
+        }
+        int shift = LEAF_BITS - precision * GeoHash.BITS_PER_CHAR;
+        long[] cells = new long[(int) count];
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            long last = ranges[i + 1] >>> shift;
+            for (long bits = (ranges[i] + (1L << shift) - 1) >>> shift; bits < last; bits++) {
+                cells[size++] = GeoHash.cell(bits, precision);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return the cells of {@link #toCells(int)}, walked off the ranges one at a time, so a
+     * large cover can be streamed without holding every cell at once
+     */
+    public PrimitiveIterator.OfLong cells(int precision) {
+        int shift = LEAF_BITS - precision * GeoHash.BITS_PER_CHAR;
+        return new PrimitiveIterator.OfLong() {
+            private int i = -2;
+            private long bits, last;
+
+            @Override
+            public boolean hasNext() {
+                while (bits >= last && i + 2 < ranges.length) {
+                    i += 2;
+                    bits = (ranges[i] + (1L << shift) - 1) >>> shift;
+                    last = ranges[i + 1] >>> shift;
+                }
+                return bits < last;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return GeoHash.cell(bits++, precision);
+            }
+        };
+    }
+
+    public HashSet<String> toGeohashes() {
+        return toGeohashes(toCells());
+    }
+
+    public HashSet<String> toGeohashes(int precision) {
+        return toGeohashes(toCells(precision));
+    }
+
+    private static HashSet<String> toGeohashes(long[] cells) {
+        HashSet<String> hashes = new HashSet<>(Math.max(16, (int) (cells.length / .75f) + 1));
+        for (long cell : cells) {
+            hashes.add(GeoHash.toGeoHash(cell));
+        }
+        return hashes;
+    }
+
+    /**
+     * @return rough heap footprint in bytes
+     */
+    public long estimatedBytes() {
+        return 32 + 8L * ranges.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CellSet && Arrays.equals(ranges, ((CellSet) o).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    /**
+     * simple toString
+     */
+    public String toString() {
+        return rangeCount() + " ranges, " + cellCount(GeoHash.MAX_PRECISION) + " leaf cells";
+    }
+
+}
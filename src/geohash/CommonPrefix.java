@@ -0,0 +1,99 @@
+package geohash;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Longest geohash prefix shared by a set of cell ids, in the manner of
+ * {@link java.util.LongSummaryStatistics}.
+ * <p>
+ * The first cell accepted is kept as a reference and every other cell is XORed against
+ * it; the OR of those differences has its highest set bit where the first disagreement
+ * is, so the shared prefix in bits is its number of leading zeros. Two partial results
+ * combine the same way, which makes this usable as a parallel stream collector:
+ * <pre>
+ *     cells.parallel().collect(CommonPrefix::new, CommonPrefix::accept, CommonPrefix::combine)
+ * </pre>
+ * Cells may have different precisions; the prefix is then no longer than the shortest.
+ */
+public class CommonPrefix implements LongConsumer {
+
+    private long reference;
+    private long difference;
+    private int limit = GeoHash.MAX_PRECISION * GeoHash.BITS_PER_CHAR;
+    private long count;
+
+    @Override
+    public void accept(long cell) {
+        // clearing the terminating bit leaves the geohash bits left aligned below the sign bit
+        long bits = cell & (cell - 1);
+        limit = Math.min(limit, GeoHash.cellPrecision(cell) * GeoHash.BITS_PER_CHAR);
+        if (count++ == 0) {
+            reference = bits;
+        } else {
+            difference |= bits ^ reference;
+        }
+    }
+
+    /**
+     * Fold another partial result into this one.
+     */
+    public void combine(CommonPrefix other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            reference = other.reference;
+        } else {
+            difference |= other.reference ^ reference;
+        }
+        difference |= other.difference;
+        limit = Math.min(limit, other.limit);
+        count += other.count;
+    }
+
+    /**
+     * @return true once the cells share no bits at all, after which accepting more cannot
+     * change the result
+     */
+    boolean isExhausted() {
+        return Long.numberOfLeadingZeros(difference) <= 1;
+    }
+
+    /**
+     * @return length of the shared prefix in geohash bits, 0 when no cells were accepted
+     */
+    public int getBits() {
+        if (count == 0) {
+            return 0;
+        }
+        return Math.min(limit, Long.numberOfLeadingZeros(difference) - 1);
+    }
+
+    /**
+     * @return length of the shared prefix in whole geohash characters
+     */
+    public int getPrecision() {
+        return getBits() / GeoHash.BITS_PER_CHAR;
+    }
+
+    /**
+     * @return the cell id of the shared prefix, the world cell when nothing is shared
+     */
+    public long getCell() {
+        int precision = getPrecision();
+        return GeoHash.cell(reference >>> (63 - precision * GeoHash.BITS_PER_CHAR), precision);
+    }
+
+    /**
+     * @return the shared prefix as a geohash string
+     */
+    public String getGeoHash() {
+        return GeoHash.toGeoHash(getCell());
+    }
+
+    @Override
+    public String toString() {
+        return getGeoHash() + " (" + getBits() + " bits)";
+    }
+
+}
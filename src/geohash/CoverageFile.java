@@ -0,0 +1,217 @@
+package geohash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A memory mapped catalog of region covers, written by {@link CoverageFileWriter}.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * header   magic, version                                    (int, int)
+ * regions  cell ids in ascending order, each stored as the
+ *          varint of its difference from the previous one,
+ *          followed by a skip table of (cell id, byte offset
+ *          of the next delta) for every 64th cell             (long, long)
+ * index    per region: data offset, data length and cell
+ *          count, precision and skip count, skip table
+ *          offset, first and end leaf cell of the region       (6 longs)
+ * footer   index offset, region count, magic                  (long, int, int)
+ * </pre>
+ * Opening the file only reads the footer. Streaming a region decodes just its bytes,
+ * and looking up a cell reads the index and one skip table per candidate region.
+ */
+public class CoverageFile implements Closeable {
+
+    static final int MAGIC = 0x47484356;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int INDEX_ENTRY_BYTES = 48;
+    static final int FOOTER_BYTES = 16;
+    static final int SKIP_INTERVAL = 64;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long indexOffset;
+    private final int regionCount;
+
+    private CoverageFile(FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        int size = buffer.limit();
+        if (size < HEADER_BYTES + FOOTER_BYTES || buffer.getInt(0) != MAGIC
+                || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("not a coverage file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported coverage file version " + buffer.getInt(4));
+        }
+        indexOffset = buffer.getLong(size - FOOTER_BYTES);
+        regionCount = buffer.getInt(size - 8);
+    }
+
+    public static CoverageFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("coverage files over 2 GiB are not supported");
+            }
+            return new CoverageFile(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int regionCount() {
+        return regionCount;
+    }
+
+    /**
+     * @return precision the region's cover was computed at
+     */
+    public int precision(int region) {
+        return (int) (entry(region, 2) >>> 32);
+    }
+
+    /**
+     * @return number of stored cells, of mixed precision, in the region
+     */
+    public int cellCount(int region) {
+        return (int) entry(region, 1);
+    }
+
+    /**
+     * @return the region's cells, decoded as they are read, in ascending order
+     */
+    public PrimitiveIterator.OfLong cells(int region) {
+        int start = (int) entry(region, 0);
+        int count = cellCount(region);
+        return new PrimitiveIterator.OfLong() {
+            private int position = start;
+            private int remaining = count;
+            private long cell;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public long nextLong() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                cell += delta;
+                return cell;
+            }
+        };
+    }
+
+    /**
+     * @return the region's cover
+     */
+    public CellSet read(int region) {
+        long[] cells = new long[cellCount(region)];
+        PrimitiveIterator.OfLong iterator = cells(region);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = iterator.nextLong();
+        }
+        return CellSet.of(cells);
+    }
+
+    /**
+     * @return true when the whole cell is covered by the region
+     */
+    public boolean contains(int region, long cell) {
+        long start = GeoHash.leafStart(cell);
+        if (cellCount(region) == 0 || start < entry(region, 4) || start >= entry(region, 5)) {
+            return false;
+        }
+        // last skip entry whose cell starts at or before the target
+        int skipCount = (int) entry(region, 2);
+        int skipOffset = (int) entry(region, 3);
+        int low = 0, high = skipCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (GeoHash.leafStart(buffer.getLong(skipOffset + 16 * mid)) <= start) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        long candidate = buffer.getLong(skipOffset + 16 * low);
+        int position = (int) (entry(region, 0) + buffer.getLong(skipOffset + 16 * low + 8));
+        int remaining = Math.min(SKIP_INTERVAL, cellCount(region) - low * SKIP_INTERVAL) - 1;
+        long current = candidate;
+        while (remaining-- > 0) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += delta;
+            if (GeoHash.leafStart(current) > start) {
+                break;
+            }
+            candidate = current;
+        }
+        return GeoHash.leafStart(candidate) <= start && GeoHash.leafEnd(cell) <= GeoHash.leafEnd(candidate);
+    }
+
+    /**
+     * @return ids of the regions whose cover holds the whole cell, in ascending order
+     */
+    public int[] regionsContaining(long cell) {
+        int[] regions = new int[8];
+        int size = 0;
+        for (int region = 0; region < regionCount; region++) {
+            if (contains(region, cell)) {
+                if (size == regions.length) {
+                    regions = Arrays.copyOf(regions, size * 2);
+                }
+                regions[size++] = region;
+            }
+        }
+        return Arrays.copyOf(regions, size);
+    }
+
+    /**
+     * @return ids of the regions whose cover holds the point
+     */
+    public int[] regionsContaining(double lat, double lon) {
+        return regionsContaining(GeoHash.encodeCell(lat, lon, GeoHash.MAX_PRECISION));
+    }
+
+    private long entry(int region, int field) {
+        if (region < 0 || region >= regionCount) {
+            throw new IndexOutOfBoundsException("region " + region + " of " + regionCount);
+        }
+        return buffer.getLong((int) (indexOffset + (long) region * INDEX_ENTRY_BYTES + 8 * field));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
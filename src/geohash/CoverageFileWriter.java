@@ -0,0 +1,115 @@
+package geohash;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes a catalog of covers in the format read by {@link CoverageFile}.
+ * <p>
+ * Regions are appended one at a time and numbered from 0, so the whole catalog never has
+ * to be in memory; the index is written when the writer is closed.
+ */
+public class CoverageFileWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private long position;
+    /**
+     * index entries, {@link CoverageFile#INDEX_ENTRY_BYTES} each, buffered until close
+     */
+    private long[] index = new long[6 * 16];
+    private int regions;
+    private boolean closed;
+
+    public CoverageFileWriter(Path file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(CoverageFile.MAGIC);
+        out.writeInt(CoverageFile.VERSION);
+        position = CoverageFile.HEADER_BYTES;
+    }
+
+    /**
+     * @param cover     cells of the region, stored as the fewest mixed precision cells
+     * @param precision precision the cover was computed at, kept as metadata
+     * @return id of the region
+     */
+    public int add(CellSet cover, int precision) throws IOException {
+        long[] cells = cover.toCells();
+        long dataOffset = position;
+        long previous = 0;
+        for (long cell : cells) {
+            position += writeVarint(out, cell - previous);
+            previous = cell;
+        }
+        int dataLength = (int) (position - dataOffset);
+
+        // every SKIP_INTERVAL cells, the id and where the next delta starts
+        long skipOffset = position;
+        int skipCount = (cells.length + CoverageFile.SKIP_INTERVAL - 1) / CoverageFile.SKIP_INTERVAL;
+        long offset = 0;
+        previous = 0;
+        for (int i = 0; i < cells.length; i++) {
+            offset += varintLength(cells[i] - previous);
+            previous = cells[i];
+            if (i % CoverageFile.SKIP_INTERVAL == 0) {
+                out.writeLong(cells[i]);
+                out.writeLong(offset);
+            }
+        }
+        position += 16L * skipCount;
+
+        if (6 * (regions + 1) > index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        int e = 6 * regions;
+        index[e] = dataOffset;
+        index[e + 1] = ((long) dataLength << 32) | cells.length;
+        index[e + 2] = ((long) precision << 32) | skipCount;
+        index[e + 3] = skipOffset;
+        index[e + 4] = cells.length == 0 ? 0 : GeoHash.leafStart(cells[0]);
+        index[e + 5] = cells.length == 0 ? 0 : GeoHash.leafEnd(cells[cells.length - 1]);
+        return regions++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long indexOffset = position;
+        for (int i = 0; i < 6 * regions; i++) {
+            out.writeLong(index[i]);
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(regions);
+        out.writeInt(CoverageFile.MAGIC);
+        out.close();
+    }
+
+    private static int writeVarint(OutputStream out, long value) throws IOException {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+            length++;
+        }
+        out.write((int) value);
+        return length;
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+}
@@ -2,6 +2,8 @@ package geohash;
 
 import coords.Coordinates;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -33,13 +35,24 @@ public class GeoHash {
     public final static HashMap<Character, Integer> charLookupTable =
             new HashMap<>();
     public static final int DEFAULT_PRECISION = 12;
+    /**
+     * Longest geohash that fits in a long cell id.
+     */
+    public static final int MAX_PRECISION = 12;
+    /**
+     * Character to integer lookups without boxing, -1 for characters outside the alphabet.
+     */
+    private final static byte[] CHAR_INDEX = new byte[128];
 
     /*
       Initialize HashMap for character to integer lookups.
      */
     static {
+        Arrays.fill(CHAR_INDEX, (byte) -1);
         for (int i = 0; i < charMap.length; ++i) {
             charLookupTable.put(charMap[i], i);
+            CHAR_INDEX[charMap[i]] = (byte) i;
+            CHAR_INDEX[Character.toUpperCase(charMap[i])] = (byte) i;
         }
     }
 
@@ -76,50 +89,14 @@ public class GeoHash {
      */
     public static String encode(float latitude, float longitude,
                                 int precision) {
-        /* Set up 2-element arrays for longitude and latitude that we can flip
-         * between while encoding */
-        float[] high = new float[2];
-        float[] low = new float[2];
-        float[] value = new float[2];
-
-        high[0] = LONGITUDE_RANGE;
-        high[1] = LATITUDE_RANGE;
-        low[0] = -LONGITUDE_RANGE;
-        low[1] = -LATITUDE_RANGE;
-        value[0] = longitude;
-        value[1] = latitude;
-
-        StringBuilder hash = new StringBuilder();
-
-        for (int p = 0; p < precision; ++p) {
-
-            float middle;
-            int charBits = 0;
-            for (int b = 0; b < BITS_PER_CHAR; ++b) {
-                int bit = (p * BITS_PER_CHAR) + b;
-
-                charBits <<= 1;
-
-                middle = (high[bit % 2] + low[bit % 2]) / 2;
-                if (value[bit % 2] > middle) {
-                    charBits |= 1;
-                    low[bit % 2] = middle;
-                } else {
-                    high[bit % 2] = middle;
-                }
-            }
-
-            hash.append(charMap[charBits]);
-        }
-
-        return hash.toString();
+        return encode((double) latitude, (double) longitude, precision);
     }
 
     /**
-     * helper method to call the default decode method when our input is a double, not a float
+     * helper method to call the encode method when our input is a double, not a float
      */
     public static String encode(double lat, double lon, int length) {
-        return encode((float) lat, (float) lon, length);
+        return toGeoHash(encodeCell(lat, lon, length));
     }
 
     /**
@@ -127,38 +104,411 @@ public class GeoHash {
      * Data is returned as a four-element array: [minlat, minlon, maxlat, maxlon]
      */
     public static double[] decode_bbox(String hashString) {
-        hashString = hashString.toLowerCase();
-        boolean islon = true;
-        double maxlat = 90, minlat = -90;
-        double maxlon = 180;
-        double minlon = -180;
-
-        int hash_value;
-        for (int i = 0, l = hashString.length(); i < l; i++) {
-            char code = hashString.charAt(i);
-            hash_value = charLookupTable.get(code);
-
-            for (int bits = 4; bits >= 0; bits--) {
-                int bit = (hash_value >> bits) & 1;
-                if (islon) {
-                    double mid = (maxlon + minlon) / 2;
-                    if (bit == 1) {
-                        minlon = mid;
-                    } else {
-                        maxlon = mid;
-                    }
-                } else {
-                    double mid = (maxlat + minlat) / 2;
-                    if (bit == 1) {
-                        minlat = mid;
-                    } else {
-                        maxlat = mid;
-                    }
-                }
-                islon = !islon;
+        double[] bbox = new double[4];
+        decodeCell(toCell(hashString), bbox);
+        return bbox;
+    }
+
+    /*
+     * Long cell ids.
+     *
+     * A cell id holds the geohash bits (5 per character, longitude first) left
+     * aligned below the sign bit, followed by a single terminating 1 bit. The
+     * precision is recovered from the number of trailing zeros, ids are always
+     * positive, and cells of the same precision sort in geohash lexicographic
+     * order.
+     */
+
+    /**
+     * Encode latitude and longitude into a long cell id.
+     *
+     * @param latitude  Latitude coordinate, in degrees.
+     * @param longitude Longitude coordinate, in degrees.
+     * @param precision Number of geohash characters, 0 to {@link #MAX_PRECISION}.
+     * @return cell id
+     */
+    public static long encodeCell(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        long latIndex = gridIndex(latitude, -LATITUDE_RANGE, 2 * LATITUDE_RANGE, latBits(precision));
+        long lonIndex = gridIndex(longitude, -LONGITUDE_RANGE, 2 * LONGITUDE_RANGE, lonBits(precision));
+        return cellAt(latIndex, lonIndex, precision);
+    }
+
+    /**
+     * Encode columns of latitudes and longitudes into cell ids, without allocating.
+     *
+     * @param lats      latitudes, in degrees
+     * @param lons      longitudes, in degrees
+     * @param precision number of geohash characters, 0 to {@link #MAX_PRECISION}
+     * @param out       receives one cell id per point, at least lats.length long
+     */
+    public static void encodeCells(double[] lats, double[] lons, int precision, long[] out) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException(lats.length + " latitudes but " + lons.length + " longitudes");
+        }
+        encodeCells(lats, lons, 0, lats.length, precision, out, 0);
+    }
+
+    /**
+     * Encode points offset until offset + length of the columns into out, starting at outOffset.
+     */
+    public static void encodeCells(double[] lats, double[] lons, int offset, int length, int precision,
+                                   long[] out, int outOffset) {
+        checkPrecision(precision);
+        if (offset < 0 || length < 0 || offset > lats.length || offset > lons.length
+                || length > lats.length - offset || length > lons.length - offset) {
+            throw new IllegalArgumentException("points " + offset + " to " + ((long) offset + length) + " are not in "
+                    + lats.length + " latitudes and " + lons.length + " longitudes");
+        }
+        checkOutput(out, outOffset, length);
+        int bits = precision * BITS_PER_CHAR;
+        long rows = rows(precision), columns = columns(precision);
+        double latStep = latStep(precision), lonStep = lonStep(precision);
+        double latInverse = 1 / latStep, lonInverse = 1 / lonStep;
+        long sentinel = cell(0, precision);
+        int shift = 63 - bits;
+        for (int i = 0; i < length; i++) {
+            long latIndex = gridIndex(lats[offset + i], -LATITUDE_RANGE, latStep, latInverse, rows);
+            long lonIndex = gridIndex(lons[offset + i], -LONGITUDE_RANGE, lonStep, lonInverse, columns);
+            out[outOffset + i] = (interleave(latIndex, lonIndex, bits) << shift) | sentinel;
+        }
+    }
+
+    /**
+     * Encode the remaining values of two buffers, which may be direct or memory mapped,
+     * into cell ids. The buffer positions are not changed.
+     */
+    public static void encodeCells(DoubleBuffer lats, DoubleBuffer lons, int precision, long[] out) {
+        checkPrecision(precision);
+        if (lats.remaining() != lons.remaining()) {
+            throw new IllegalArgumentException(lats.remaining() + " latitudes but " + lons.remaining() + " longitudes");
+        }
+        checkOutput(out, 0, lats.remaining());
+        int bits = precision * BITS_PER_CHAR;
+        long rows = rows(precision), columns = columns(precision);
+        double latStep = latStep(precision), lonStep = lonStep(precision);
+        double latInverse = 1 / latStep, lonInverse = 1 / lonStep;
+        long sentinel = cell(0, precision);
+        int shift = 63 - bits;
+        for (int i = 0, n = lats.remaining(), latBase = lats.position(), lonBase = lons.position(); i < n; i++) {
+            long latIndex = gridIndex(lats.get(latBase + i), -LATITUDE_RANGE, latStep, latInverse, rows);
+            long lonIndex = gridIndex(lons.get(lonBase + i), -LONGITUDE_RANGE, lonStep, lonInverse, columns);
+            out[i] = (interleave(latIndex, lonIndex, bits) << shift) | sentinel;
+        }
+    }
+
+    private static void checkOutput(long[] out, int outOffset, int length) {
+        if (outOffset < 0 || outOffset > out.length || length > out.length - outOffset) {
+            throw new IllegalArgumentException("no room for " + length + " cells at " + outOffset + " in "
+                    + out.length);
+        }
+    }
+
+    /**
+     * Encode columns of latitudes and longitudes into geohash characters, precision
+     * characters per point packed back to back in out.
+     */
+    public static void encodeChars(double[] lats, double[] lons, int precision, char[] out) {
+        checkPrecision(precision);
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException(lats.length + " latitudes but " + lons.length + " longitudes");
+        }
+        if ((long) lats.length * precision > out.length) {
+            throw new IllegalArgumentException("no room for " + lats.length + " geohashes of " + precision
+                    + " characters in " + out.length);
+        }
+        int bits = precision * BITS_PER_CHAR;
+        long rows = rows(precision), columns = columns(precision);
+        double latStep = latStep(precision), lonStep = lonStep(precision);
+        double latInverse = 1 / latStep, lonInverse = 1 / lonStep;
+        for (int i = 0, o = 0; i < lats.length; i++) {
+            long latIndex = gridIndex(lats[i], -LATITUDE_RANGE, latStep, latInverse, rows);
+            long lonIndex = gridIndex(lons[i], -LONGITUDE_RANGE, lonStep, lonInverse, columns);
+            long hash = interleave(latIndex, lonIndex, bits);
+            o += precision;
+            for (int c = 1; c <= precision; c++) {
+                out[o - c] = charMap[(int) (hash & 31)];
+                hash >>>= BITS_PER_CHAR;
+            }
+        }
+    }
+
+    /**
+     * Build a cell id from raw geohash bits.
+     *
+     * @param bits      the geohash bits, right aligned (5 per character)
+     * @param precision number of geohash characters the bits represent
+     */
+    public static long cell(long bits, int precision) {
+        return ((bits << 1) | 1) << (62 - precision * BITS_PER_CHAR);
+    }
+
+    /**
+     * @return number of geohash characters in the cell id
+     */
+    public static int cellPrecision(long cell) {
+        return (62 - Long.numberOfTrailingZeros(cell)) / BITS_PER_CHAR;
+    }
+
+    /**
+     * @return the geohash bits of the cell id, right aligned
+     */
+    public static long cellBits(long cell) {
+        return cell >>> (63 - cellPrecision(cell) * BITS_PER_CHAR);
+    }
+
+    /**
+     * @param index which of the 32 children, in geohash character order
+     * @return the child cell one character longer than cell
+     */
+    public static long child(long cell, int index) {
+        int precision = cellPrecision(cell);
+        return cell((cellBits(cell) << BITS_PER_CHAR) | index, precision + 1);
+    }
+
+    /**
+     * @return first 12 character cell inside the cell, as right aligned geohash bits
+     */
+    public static long leafStart(long cell) {
+        return cellBits(cell) << ((MAX_PRECISION - cellPrecision(cell)) * BITS_PER_CHAR);
+    }
+
+    /**
+     * @return one past the last 12 character cell inside the cell, as right aligned geohash bits
+     */
+    public static long leafEnd(long cell) {
+        return (cellBits(cell) + 1) << ((MAX_PRECISION - cellPrecision(cell)) * BITS_PER_CHAR);
+    }
+
+    /**
+     * Decode a cell id into its bounding box without allocating.
+     *
+     * @param cell cell id
+     * @param bbox receives [minlat, minlon, maxlat, maxlon]
+     */
+    public static void decodeCell(long cell, double[] bbox) {
+        decodeCell(cell, bbox, 0);
+    }
+
+    /**
+     * Decode a cell id into its bounding box, written to bbox starting at offset.
+     */
+    public static void decodeCell(long cell, double[] bbox, int offset) {
+        int precision = cellPrecision(cell);
+        long latIndex = latIndex(cell);
+        long lonIndex = lonIndex(cell);
+        double latStep = latStep(precision);
+        double lonStep = lonStep(precision);
+        bbox[offset] = -LATITUDE_RANGE + latIndex * latStep;
+        bbox[offset + 1] = -LONGITUDE_RANGE + lonIndex * lonStep;
+        bbox[offset + 2] = -LATITUDE_RANGE + (latIndex + 1) * latStep;
+        bbox[offset + 3] = -LONGITUDE_RANGE + (lonIndex + 1) * lonStep;
+    }
+
+    /**
+     * Decode a cell id into its center, written to center as [lat, lon] starting at offset.
+     */
+    public static void decodeCenter(long cell, double[] center, int offset) {
+        int precision = cellPrecision(cell);
+        center[offset] = -LATITUDE_RANGE + (latIndex(cell) + 0.5) * latStep(precision);
+        center[offset + 1] = -LONGITUDE_RANGE + (lonIndex(cell) + 0.5) * lonStep(precision);
+    }
+
+    /**
+     * Convert a geohash string (either case) into a cell id.
+     */
+    public static long toCell(CharSequence hash) {
+        int precision = hash.length();
+        checkPrecision(precision);
+        long bits = 0;
+        for (int i = 0; i < precision; i++) {
+            char c = hash.charAt(i);
+            int value = c < CHAR_INDEX.length ? CHAR_INDEX[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("invalid geohash character '" + c + "' in " + hash);
             }
+            bits = (bits << BITS_PER_CHAR) | value;
+        }
+        return cell(bits, precision);
+    }
+
+    /**
+     * Convert a cell id into its geohash string.
+     */
+    public static String toGeoHash(long cell) {
+        char[] chars = new char[cellPrecision(cell)];
+        toChars(cell, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Write the geohash characters of a cell id into a caller supplied buffer.
+     *
+     * @return number of characters written
+     */
+    public static int toChars(long cell, char[] dest, int offset) {
+        int precision = cellPrecision(cell);
+        long bits = cell >>> (63 - precision * BITS_PER_CHAR);
+        for (int i = precision - 1; i >= 0; i--) {
+            dest[offset + i] = charMap[(int) (bits & 31)];
+            bits >>>= BITS_PER_CHAR;
         }
-        return new double[]{minlat, minlon, maxlat, maxlon};
+        return precision;
+    }
+
+    /**
+     * @return number of latitude bits in a geohash of the given precision
+     */
+    public static int latBits(int precision) {
+        return precision * BITS_PER_CHAR / 2;
+    }
+
+    /**
+     * @return number of longitude bits in a geohash of the given precision
+     */
+    public static int lonBits(int precision) {
+        return (precision * BITS_PER_CHAR + 1) / 2;
+    }
+
+    /**
+     * @return number of geohash rows (latitude cells) at the given precision
+     */
+    public static long rows(int precision) {
+        return 1L << latBits(precision);
+    }
+
+    /**
+     * @return number of geohash columns (longitude cells) at the given precision
+     */
+    public static long columns(int precision) {
+        return 1L << lonBits(precision);
+    }
+
+    /**
+     * @return height of a cell in degrees of latitude
+     */
+    public static double latStep(int precision) {
+        return 2.0 * LATITUDE_RANGE / rows(precision);
+    }
+
+    /**
+     * @return width of a cell in degrees of longitude
+     */
+    public static double lonStep(int precision) {
+        return 2.0 * LONGITUDE_RANGE / columns(precision);
+    }
+
+    /**
+     * @return row of the grid that holds the latitude, 0 being the southernmost row
+     */
+    public static long latIndex(double latitude, int precision) {
+        checkPrecision(precision);
+        return gridIndex(latitude, -LATITUDE_RANGE, 2 * LATITUDE_RANGE, latBits(precision));
+    }
+
+    /**
+     * @return column of the grid that holds the longitude, 0 being the column at -180
+     */
+    public static long lonIndex(double longitude, int precision) {
+        checkPrecision(precision);
+        return gridIndex(longitude, -LONGITUDE_RANGE, 2 * LONGITUDE_RANGE, lonBits(precision));
+    }
+
+    /**
+     * @return row of the cell id in the grid of its precision
+     */
+    public static long latIndex(long cell) {
+        int precision = cellPrecision(cell);
+        long bits = cell >>> (63 - precision * BITS_PER_CHAR);
+        return (precision & 1) == 0 ? squash(bits) : squash(bits >>> 1);
+    }
+
+    /**
+     * @return column of the cell id in the grid of its precision
+     */
+    public static long lonIndex(long cell) {
+        int precision = cellPrecision(cell);
+        long bits = cell >>> (63 - precision * BITS_PER_CHAR);
+        return (precision & 1) == 0 ? squash(bits >>> 1) : squash(bits);
+    }
+
+    /**
+     * Build the cell id at a row and column of the grid. Both indices must be in range.
+     */
+    public static long cellAt(long latIndex, long lonIndex, int precision) {
+        return cell(interleave(latIndex, lonIndex, precision * BITS_PER_CHAR), precision);
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between 0 and " + MAX_PRECISION
+                    + ", was " + precision);
+        }
+    }
+
+    /**
+     * Index of the grid cell holding value, when [min, min + range] is cut into 2^bits cells.
+     * Values on a boundary belong to the lower cell, matching the bisection encoding.
+     */
+    static long gridIndex(double value, double min, double range, int bits) {
+        long cells = 1L << bits;
+        double step = range / cells;
+        return gridIndex(value, min, step, 1 / step, cells);
+    }
+
+    /**
+     * {@link #gridIndex(double, double, double, int)} with the cell size worked out by the caller
+     */
+    private static long gridIndex(double value, double min, double step, double inverseStep, long cells) {
+        long index = (long) Math.floor((value - min) * inverseStep);
+        if (index >= cells) {
+            index = cells - 1;
+        } else if (index < 0) {
+            index = 0;
+        }
+        double low = min + index * step;
+        if (value <= low && index > 0) {
+            index--;
+        } else if (value > low + step && index < cells - 1) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Morton interleave; longitude always takes the most significant bit.
+     */
+    static long interleave(long latIndex, long lonIndex, int bits) {
+        if ((bits & 1) == 0) {
+            return (spread(lonIndex) << 1) | spread(latIndex);
+        }
+        return spread(lonIndex) | (spread(latIndex) << 1);
+    }
+
+    /**
+     * Spread the low 32 bits of x onto the even bits of a long.
+     */
+    static long spread(long x) {
+        x &= 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    /**
+     * Inverse of {@link #spread(long)}: gather the even bits of x.
+     */
+    static long squash(long x) {
+        x &= 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return x;
     }
 
 }
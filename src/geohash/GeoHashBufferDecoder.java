@@ -0,0 +1,210 @@
+package geohash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Decodes ASCII geohashes straight out of byte buffers, such as memory mapped files.
+ * <p>
+ * Characters are looked up in a 256 entry table and accumulated into cell ids, so no
+ * Strings or boxed values are created. Records are either newline delimited (a trailing
+ * carriage return and blank lines are ignored) or fixed width, padded after the hash
+ * with spaces or NUL bytes. Anything else, or a fixed width record with no hash, is an
+ * {@link IllegalArgumentException}.
+ */
+public class GeoHashBufferDecoder {
+
+    /**
+     * largest slice of a file mapped at once
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private static final int BATCH = 4096;
+    private static final byte[] LOOKUP = new byte[256];
+
+    static {
+        Arrays.fill(LOOKUP, (byte) -1);
+        for (int i = 0; i < GeoHash.charMap.length; i++) {
+            LOOKUP[GeoHash.charMap[i]] = (byte) i;
+            LOOKUP[Character.toUpperCase(GeoHash.charMap[i])] = (byte) i;
+        }
+    }
+
+    /**
+     * Decode newline delimited geohashes from the buffer's position into cell ids. The
+     * position is moved past every record decoded.
+     *
+     * @param endOfInput when false, a last record without a newline is left in the buffer,
+     *                   as it may continue in the next chunk
+     * @return number of cell ids written to cells
+     */
+    public static int decodeLines(ByteBuffer buf, boolean endOfInput, long[] cells, int offset, int max) {
+        return decodeLines(buf, endOfInput, cells, offset, max, 0);
+    }
+
+    /**
+     * @param base where the buffer starts in the file, added to the byte offsets of errors
+     */
+    private static int decodeLines(ByteBuffer buf, boolean endOfInput, long[] cells, int offset, int max,
+                                   long base) {
+        int count = 0;
+        int position = buf.position();
+        int limit = buf.limit();
+        while (count < max && position < limit) {
+            int end = position;
+            while (end < limit && buf.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && !endOfInput) {
+                break;
+            }
+            int recordEnd = end > position && buf.get(end - 1) == '\r' ? end - 1 : end;
+            if (recordEnd > position) {
+                cells[offset + count++] = decode(buf, position, recordEnd, base);
+            }
+            position = Math.min(limit, end + 1);
+        }
+        buf.position(position);
+        return count;
+    }
+
+    /**
+     * Decode fixed width records from the buffer's position into cell ids. The position
+     * is moved past every record decoded; a trailing partial record is left in place.
+     *
+     * @return number of cell ids written to cells
+     */
+    public static int decodeFixedWidth(ByteBuffer buf, int recordWidth, long[] cells, int offset, int max) {
+        int count = 0;
+        int position = buf.position();
+        while (count < max && buf.limit() - position >= recordWidth) {
+            int recordEnd = position + recordWidth;
+            int end = position;
+            while (end < recordEnd && LOOKUP[buf.get(end) & 0xFF] >= 0) {
+                end++;
+            }
+            if (end == position) {
+                throw new IllegalArgumentException("empty record at byte " + position);
+            }
+            for (int i = end; i < recordEnd; i++) {
+                byte padding = buf.get(i);
+                if (padding != ' ' && padding != 0) {
+                    throw new IllegalArgumentException("invalid padding byte " + (padding & 0xFF) + " at " + i);
+                }
+            }
+            cells[offset + count++] = decode(buf, position, end, 0);
+            position += recordWidth;
+        }
+        buf.position(position);
+        return count;
+    }
+
+    /**
+     * Decode newline delimited geohashes into cell centers, [lat, lon] per record.
+     *
+     * @return number of records decoded
+     */
+    public static int decodeCentroids(ByteBuffer buf, boolean endOfInput, double[] centers, int maxRecords) {
+        long[] cells = new long[Math.min(BATCH, maxRecords)];
+        int total = 0;
+        while (total < maxRecords) {
+            int count = decodeLines(buf, endOfInput, cells, 0, Math.min(cells.length, maxRecords - total));
+            if (count == 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                GeoHash.decodeCenter(cells[i], centers, 2 * (total + i));
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Decode newline delimited geohashes into bounding boxes, [minlat, minlon, maxlat, maxlon]
+     * per record.
+     *
+     * @return number of records decoded
+     */
+    public static int decodeBoxes(ByteBuffer buf, boolean endOfInput, double[] boxes, int maxRecords) {
+        long[] cells = new long[Math.min(BATCH, maxRecords)];
+        int total = 0;
+        while (total < maxRecords) {
+            int count = decodeLines(buf, endOfInput, cells, 0, Math.min(cells.length, maxRecords - total));
+            if (count == 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                GeoHash.decodeCell(cells[i], boxes, 4 * (total + i));
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Memory map a newline delimited geohash file and hand every cell id to the visitor,
+     * until it returns false. Files of any size are mapped in slices.
+     *
+     * @return number of cells visited
+     */
+    public static long forEachCell(Path file, LongPredicate visitor) throws IOException {
+        return forEachCell(file, DEFAULT_CHUNK_SIZE, visitor);
+    }
+
+    /**
+     * @param chunkSize largest slice of the file mapped at once, longer than any record
+     */
+    public static long forEachCell(Path file, int chunkSize, LongPredicate visitor) throws IOException {
+        long visited = 0;
+        long[] cells = new long[BATCH];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long length = Math.min(chunkSize, size - start);
+                boolean last = start + length == size;
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int count;
+                while ((count = decodeLines(chunk, last, cells, 0, cells.length, start)) > 0) {
+                    for (int i = 0; i < count; i++) {
+                        visited++;
+                        if (!visitor.test(cells[i])) {
+                            return visited;
+                        }
+                    }
+                }
+                if (!last && chunk.position() == 0) {
+                    throw new IOException("record at byte " + start + " is longer than the chunk size");
+                }
+                start += last ? length : chunk.position();
+            }
+        }
+        return visited;
+    }
+
+    private static long decode(ByteBuffer buf, int start, int end, long base) {
+        int precision = end - start;
+        if (precision > GeoHash.MAX_PRECISION) {
+            throw new IllegalArgumentException("geohash at byte " + (base + start) + " is longer than "
+                    + GeoHash.MAX_PRECISION + " characters");
+        }
+        long bits = 0;
+        for (int i = start; i < end; i++) {
+            int value = LOOKUP[buf.get(i) & 0xFF];
+            if (value < 0) {
+                throw new IllegalArgumentException("invalid geohash byte " + (buf.get(i) & 0xFF) + " at "
+                        + (base + i));
+            }
+            bits = (bits << GeoHash.BITS_PER_CHAR) | value;
+        }
+        return GeoHash.cell(bits, precision);
+    }
+
+}
@@ -2,7 +2,11 @@ package geohash;
 
 
 import coords.Coordinates;
+import coords.MultiPolygon;
+import coords.PackedRing;
+import polygon.FillRule;
 import polygon.PointInPolygon;
+import polygon.PreparedPolygon;
 
 /**
  * Various functions that work with geohashes
@@ -10,12 +14,21 @@ import polygon.PointInPolygon;
 public class GeoHashUtils {
 
     public static Coordinates decodeWithError(String hash_string) {
-        double[] bbox = GeoHash.decode_bbox(hash_string);
-        double lat = (bbox[0] + bbox[2]) / 2;
-        double lon = (bbox[1] + bbox[3]) / 2;
-        double laterr = bbox[2] - lat;
-        double lonerr = bbox[3] - lon;
-        return new Coordinates(lat, lon, laterr, lonerr);
+        double[] decoded = new double[4];
+        decodeWithError(GeoHash.toCell(hash_string), decoded, 0);
+        return new Coordinates(decoded[0], decoded[1], decoded[2], decoded[3]);
+    }
+
+    /**
+     * decodes a cell id into its center and error without allocating
+     *
+     * @param out receives [lat, lon, laterr, lonerr] starting at offset
+     */
+    public static void decodeWithError(long cell, double[] out, int offset) {
+        GeoHash.decodeCenter(cell, out, offset);
+        int precision = GeoHash.cellPrecision(cell);
+        out[offset + 2] = GeoHash.latStep(precision) / 2;
+        out[offset + 3] = GeoHash.lonStep(precision) / 2;
     }
 
 
@@ -27,6 +40,22 @@ public class GeoHashUtils {
     }
 
 
+    /**
+     * shifts lon by whole turns so that it continues from previous the shorter way around,
+     * east when lon {@link #isWest(double, double) is east of} previous and west otherwise.
+     * Longitudes less than half a turn from previous are returned unchanged.
+     *
+     * @param previous the last unwrapped longitude, which may lie outside [-180, 180]
+     */
+    public static double unwrap(double previous, double lon) {
+        double normalized = previous - 360 * Math.floor((previous + 180) / 360);
+        if (isWest(normalized, lon)) {
+            return lon + 360 * Math.ceil((previous - lon) / 360);
+        }
+        return lon + 360 * Math.floor((previous - lon) / 360);
+    }
+
+
     /**
      * get the bounding box that envelopes a polygon.
      * <p>
@@ -54,18 +83,52 @@ public class GeoHashUtils {
     }
 
 
+    /**
+     * get the bounding box that envelopes a packed polygon, as {@link #polyToBB(Coordinates[])}
+     */
+    public static double[] polyToBB(PackedRing polygon) {
+        double minLat = Double.MAX_VALUE, minLon = minLat, maxLat = -minLat, maxLon = -minLat;
+        for (int i = 0; i < polygon.size(); i++) {
+            minLat = Math.min(minLat, polygon.latitude(i));
+            minLon = Math.min(minLon, polygon.longitude(i));
+            maxLat = Math.max(maxLat, polygon.latitude(i));
+            maxLon = Math.max(maxLon, polygon.longitude(i));
+        }
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+
+    /**
+     * get the bounding box that envelopes all rings of a multipolygon. For a wrapping
+     * multipolygon that crosses the antimeridian maxlon is past 180, so the box stays tight
+     * instead of spanning the world.
+     */
+    public static double[] polyToBB(MultiPolygon polygon) {
+        return new PreparedPolygon(polygon, FillRule.EVEN_ODD).boundingBox();
+    }
+
+
     /**
      * gets a neighbor's geohash from a specified direction
      */
     public static String neighbor(String hash, int[] direction) {
-        Coordinates lonlat = GeoHashUtils.decodeWithError(hash);
-        double neighbor_lat = lonlat.getLatitude()
-                + direction[0] * lonlat.getError().getLat() * 2;
-
-        double neighbor_lon = lonlat.getLongitude()
-                + direction[1] * lonlat.getError().getLon() * 2;
+        return GeoHash.toGeoHash(neighbor(GeoHash.toCell(hash), direction[0], direction[1]));
+    }
 
-        return GeoHash.encode(neighbor_lat, neighbor_lon, hash.length());
+    /**
+     * steps a cell id across the grid of its precision. Longitude wraps around the
+     * antimeridian, latitude is clamped at the poles.
+     *
+     * @param latSteps rows to move, positive is north
+     * @param lonSteps columns to move, positive is east
+     */
+    public static long neighbor(long cell, long latSteps, long lonSteps) {
+        int precision = GeoHash.cellPrecision(cell);
+        long row = GeoHash.latIndex(cell) + latSteps;
+        long lastRow = GeoHash.rows(precision) - 1;
+        row = row < 0 ? 0 : Math.min(row, lastRow);
+        long column = (GeoHash.lonIndex(cell) + lonSteps) & (GeoHash.columns(precision) - 1);
+        return GeoHash.cellAt(row, column, precision);
     }
 
     /**
@@ -79,4 +142,18 @@ public class GeoHashUtils {
         return inside % 2;
     }
 
+    /**
+     * determines if a point is inside of a prepared polygon
+     */
+    public static int inside(Coordinates point, PreparedPolygon polygon) {
+        return inside(point.getLatitude(), point.getLongitude(), polygon) ? 1 : 0;
+    }
+
+    /**
+     * determines if a point is inside of a prepared polygon, without wrapping it in Coordinates
+     */
+    public static boolean inside(double lat, double lon, PreparedPolygon polygon) {
+        return polygon.contains(lat, lon);
+    }
+
 }
@@ -1,37 +1,84 @@
 package geohash;
 
 import coords.Coordinates;
+import coords.PackedRing;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 public class LongestEnclosingGeoHash {
 
+    /**
+     * point sets at least this large are reduced in parallel
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * points encoded per batch, sized so the batch of cell ids stays in cache
+     */
+    private static final int CHUNK = 4096;
+
 
     public static String longestEnclosingHash(Coordinates... polygonPoints) {
-        String[] hashes = new String[polygonPoints.length];
-        int i = 0;
-        for (Coordinates ds : polygonPoints) {
-            hashes[i] = GeoHash.encode(ds);
-            i++;
+        double[] lats = new double[polygonPoints.length];
+        double[] lons = new double[polygonPoints.length];
+        for (int i = 0; i < polygonPoints.length; i++) {
+            lats[i] = polygonPoints[i].getLatitude();
+            lons[i] = polygonPoints[i].getLongitude();
         }
-        return longestCommonPrefix(hashes);
+        return commonPrefix(lats, lons).getGeoHash();
+    }
 
+    public static String longestEnclosingHash(PackedRing polygon) {
+        double[] lats = new double[polygon.size()];
+        double[] lons = new double[polygon.size()];
+        for (int i = 0; i < polygon.size(); i++) {
+            lats[i] = polygon.latitude(i);
+            lons[i] = polygon.longitude(i);
+        }
+        return commonPrefix(lats, lons).getGeoHash();
+    }
 
+    /**
+     * @return the longest geohash enclosing every point of the columns
+     */
+    public static String longestEnclosingHash(double[] lats, double[] lons) {
+        return commonPrefix(lats, lons).getGeoHash();
     }
 
-    private static String longestCommonPrefix(String[] strings) {
-        if (strings.length == 0) {
-            return "";   // Or maybe return null?
+    /**
+     * Shared prefix of the points encoded at {@link GeoHash#MAX_PRECISION}, reduced in
+     * parallel on the common pool for large point sets.
+     */
+    public static CommonPrefix commonPrefix(double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("latitude and longitude columns differ in length");
         }
-
-        for (int prefixLen = 0; prefixLen < strings[0].length(); prefixLen++) {
-            char c = strings[0].charAt(prefixLen);
-            for (int i = 1; i < strings.length; i++) {
-                if (prefixLen >= strings[i].length() || strings[i].charAt(prefixLen) != c) {
-                    // Mismatch found
-                    return strings[i].substring(0, prefixLen);
-                }
-            }
+        int chunks = (lats.length + CHUNK - 1) / CHUNK;
+        IntStream batches = IntStream.range(0, chunks);
+        if (lats.length >= PARALLEL_THRESHOLD) {
+            batches = batches.parallel();
         }
-        return strings[0];
+        return batches.collect(CommonPrefix::new, (prefix, chunk) -> {
+            if (prefix.isExhausted()) {
+                return;
+            }
+            long[] cells = new long[CHUNK];
+            int offset = chunk * CHUNK;
+            int length = Math.min(CHUNK, lats.length - offset);
+            GeoHash.encodeCells(lats, lons, offset, length, GeoHash.MAX_PRECISION, cells, 0);
+            for (int i = 0; i < length; i++) {
+                prefix.accept(cells[i]);
+            }
+        }, CommonPrefix::combine);
+    }
+
+    /**
+     * Shared prefix of a stream of cell ids, of any precisions. Parallel streams are
+     * reduced in parallel.
+     */
+    public static CommonPrefix commonPrefix(LongStream cells) {
+        return cells.collect(CommonPrefix::new, CommonPrefix::accept, CommonPrefix::combine);
     }
 
 }
@@ -0,0 +1,276 @@
+package polygon;
+
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+
+import java.util.HashSet;
+
+/**
+ * A cover grown or shrunk by a margin of whole cells, such as the cells of a viewport plus
+ * two tiles all around for prefetching.
+ * <p>
+ * Buffering by k gives the cells within k steps of the cover, counting diagonal steps, so
+ * the same cells as collecting the neighbors of every cell k times over. A negative k keeps
+ * only the cells whose neighbors k steps out are all in the cover. Instead of stepping
+ * cell by cell, the cover is drawn into a bitmap over its bounding rows and columns and
+ * the bitmap is dilated, or eroded, a row of 64 columns at a time. A square of radius k
+ * is a horizontal segment followed by a vertical one, and each segment is built from
+ * shifts of 1, 2, 4, ... cells, so the cost is the size of the grid times log k. The grid
+ * is never wider than the world plus the margin: once a margin of k reaches around the
+ * world every row ends up all or nothing, and the grid is one world wide.
+ * <p>
+ * Columns wrap around the antimeridian and rows stop at the poles, as with
+ * {@link geohash.GeoHashUtils#neighbor(long, long, long)}.
+ */
+public class BufferedCover {
+
+    private final int precision;
+    private final long columns;
+    private final long topRow;
+    private final long gridWest;
+    private final int width;
+    private final int words;
+    private final long[][] bits;
+    private final long[] empty;
+    /**
+     * rows come out full or empty whatever the columns, as k reaches around the world
+     */
+    private final boolean wholeRows;
+
+    /**
+     * @param topRow   northernmost row of the grid
+     * @param rowCount rows in the grid, from topRow south
+     * @param gridWest column of the first bit in every row, unwrapped
+     * @param width    columns in the grid
+     */
+    private BufferedCover(int precision, long topRow, long rowCount, long gridWest, long width, boolean wholeRows) {
+        if (rowCount * ((width + 63) >> 6) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("buffer grid of " + rowCount + " by " + width + " cells is too large");
+        }
+        this.precision = precision;
+        this.columns = GeoHash.columns(precision);
+        this.topRow = topRow;
+        this.gridWest = gridWest;
+        this.width = (int) width;
+        this.words = (this.width + 63) >> 6;
+        this.bits = new long[(int) rowCount][words];
+        this.empty = new long[words];
+        this.wholeRows = wholeRows;
+    }
+
+    public static CellSet buffer(Coordinates[] polygon, int precision, int k) {
+        return buffer(new PreparedPolygon(polygon), precision, k);
+    }
+
+    /**
+     * @param k cells to grow the center point cover by, or to shrink it by when negative
+     */
+    public static CellSet buffer(PreparedPolygon polygon, int precision, int k) {
+        double[] bounding = polygon.boundingBox();
+        long top = GeoHash.latIndex(bounding[2], precision);
+        long bottom = GeoHash.latIndex(bounding[0], precision);
+        long westColumn = polygon.westColumn(precision);
+        long columnCount = polygon.columnCount(precision);
+        BufferedCover grid = grid(precision, top, bottom, westColumn, columnCount, k);
+
+        double latStep = GeoHash.latStep(precision);
+        double lonStep = GeoHash.lonStep(precision);
+        double[] crossings = new double[polygon.maxCrossings()];
+        long[] spans = new long[polygon.maxCrossings()];
+        for (long row = top; row >= bottom; row--) {
+            double y = -GeoHash.LATITUDE_RANGE + (row + 0.5) * latStep;
+            int count = ScanlineRasterizer.spans(polygon, y, westColumn, columnCount, lonStep, crossings, spans);
+            for (int s = 0; s < count; s += 2) {
+                grid.fill(row, westColumn + spans[s], westColumn + spans[s + 1]);
+            }
+        }
+        return grid.buffer(k);
+    }
+
+    /**
+     * @param cover cells of the given precision, such as a cover from {@link GeoHashesInPolygon#coverage}
+     */
+    public static CellSet buffer(CellSet cover, int precision, int k) {
+        long[] cells = cover.toCells(precision);
+        if (cells.length == 0) {
+            return CellSet.empty();
+        }
+        long top = 0, bottom = Long.MAX_VALUE, west = Long.MAX_VALUE, east = 0;
+        for (long cell : cells) {
+            long row = GeoHash.latIndex(cell), column = GeoHash.lonIndex(cell);
+            top = Math.max(top, row);
+            bottom = Math.min(bottom, row);
+            west = Math.min(west, column);
+            east = Math.max(east, column);
+        }
+        BufferedCover grid = grid(precision, top, bottom, west, east - west + 1, k);
+        for (long cell : cells) {
+            long column = GeoHash.lonIndex(cell);
+            grid.fill(GeoHash.latIndex(cell), column, column + 1);
+        }
+        return grid.buffer(k);
+    }
+
+    public static HashSet<String> geohashes(Coordinates[] polygon, int precision, int k) {
+        return buffer(polygon, precision, k).toGeohashes(precision);
+    }
+
+    /**
+     * a grid over the rows and columns of a cover with room for growing it by k, and, as
+     * the grid may hold a column more than once, for shrinking covers that wrap the world
+     */
+    private static BufferedCover grid(int precision, long top, long bottom, long westColumn, long columnCount, int k) {
+        long margin = Math.abs((long) k);
+        if (k > 0) {
+            top = Math.min(GeoHash.rows(precision) - 1, top + k);
+            bottom = Math.max(0, bottom - k);
+        }
+        long columns = GeoHash.columns(precision);
+        if (2 * margin + 1 >= columns) {
+            return new BufferedCover(precision, top, top - bottom + 1, 0, columns, true);
+        }
+        return new BufferedCover(precision, top, top - bottom + 1, westColumn - margin, columnCount + 2 * margin,
+                false);
+    }
+
+    /**
+     * set the columns from west up to east, unwrapped, of a row, at every place they
+     * appear in the grid
+     */
+    private void fill(long row, long west, long east) {
+        long[] words = bits[(int) (topRow - row)];
+        long from = Math.floorMod(west - gridWest, columns) - columns;
+        for (long to = from + (east - west); from < width; from += columns, to += columns) {
+            setRange(words, (int) Math.max(0, from), (int) Math.min(width, to));
+        }
+    }
+
+    private static void setRange(long[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >> 6, last = (to - 1) >> 6;
+        long firstMask = -1L << from, lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int w = first + 1; w < last; w++) {
+            words[w] = -1L;
+        }
+        words[last] |= lastMask;
+    }
+
+    private CellSet buffer(int k) {
+        boolean grow = k > 0;
+        if (wholeRows) {
+            wholeRows(grow);
+        }
+        // past the number of rows, stepping further north or south changes nothing
+        int radius = (int) Math.min(Math.abs((long) k), GeoHash.rows(precision));
+        for (int done = 0, step = 1; done < radius; done += step, step *= 2) {
+            step = Math.min(step, radius - done);
+            if (!wholeRows) {
+                horizontal(step, grow);
+            }
+            vertical(step, grow);
+        }
+        return toCellSet();
+    }
+
+    /**
+     * the horizontal part of a margin that reaches around the world: growing fills every
+     * row with a cell in it, shrinking empties every row with a cell missing
+     */
+    private void wholeRows(boolean grow) {
+        long tail = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        for (long[] row : bits) {
+            boolean any = false, all = true;
+            for (int w = 0; w < words; w++) {
+                long full = w == words - 1 ? tail : -1L;
+                any |= row[w] != 0;
+                all &= row[w] == full;
+            }
+            boolean keep = grow ? any : all;
+            for (int w = 0; w < words; w++) {
+                row[w] = keep ? (w == words - 1 ? tail : -1L) : 0;
+            }
+        }
+    }
+
+    /**
+     * combine every row with itself shifted step columns east and west
+     */
+    private void horizontal(int step, boolean grow) {
+        long tail = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        long[] shifted = new long[words];
+        for (long[] row : bits) {
+            for (int w = 0; w < words; w++) {
+                long east = shifted(row, w, step), west = shifted(row, w, -step);
+                shifted[w] = grow ? row[w] | east | west : row[w] & east & west;
+            }
+            shifted[words - 1] &= tail;
+            System.arraycopy(shifted, 0, row, 0, words);
+        }
+    }
+
+    /**
+     * word w of a row moved by step columns, east when step is positive
+     */
+    private static long shifted(long[] row, int w, int step) {
+        int n = row.length;
+        int words = Math.abs(step) >> 6, bits = Math.abs(step) & 63;
+        if (step >= 0) {
+            int i = w - words;
+            long value = i >= 0 ? row[i] << bits : 0;
+            return bits != 0 && i > 0 ? value | row[i - 1] >>> (64 - bits) : value;
+        }
+        int i = w + words;
+        long value = i < n ? row[i] >>> bits : 0;
+        return bits != 0 && i + 1 < n ? value | row[i + 1] << (64 - bits) : value;
+    }
+
+    /**
+     * combine every row with the rows step north and south of it
+     */
+    private void vertical(int step, boolean grow) {
+        long[][] combined = new long[bits.length][];
+        for (int i = 0; i < bits.length; i++) {
+            long[] north = row(i - step), south = row(i + step);
+            long[] result = bits[i].clone();
+            for (int w = 0; w < words; w++) {
+                result[w] = grow ? result[w] | north[w] | south[w] : result[w] & north[w] & south[w];
+            }
+            combined[i] = result;
+        }
+        System.arraycopy(combined, 0, bits, 0, bits.length);
+    }
+
+    /**
+     * row i of the grid, where rows past the poles are the row at the pole and other rows
+     * outside the grid are empty
+     */
+    private long[] row(int i) {
+        long row = Math.max(0, Math.min(GeoHash.rows(precision) - 1, topRow - i));
+        long index = topRow - row;
+        return index >= 0 && index < bits.length ? bits[(int) index] : empty;
+    }
+
+    private CellSet toCellSet() {
+        long mask = columns - 1;
+        CellList cells = new CellList();
+        for (int i = 0; i < bits.length; i++) {
+            long row = topRow - i;
+            for (int w = 0; w < words; w++) {
+                for (long word = bits[i][w]; word != 0; word &= word - 1) {
+                    long column = gridWest + 64L * w + Long.numberOfTrailingZeros(word);
+                    cells.accept(GeoHash.cellAt(row, column & mask, precision));
+                }
+            }
+        }
+        return CellSet.of(cells.toArray());
+    }
+
+}
@@ -0,0 +1,50 @@
+package polygon;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Growable array of cell ids, used to hand cells between tasks without boxing.
+ */
+class CellList implements LongConsumer {
+
+    private long[] cells;
+    private int size;
+
+    CellList() {
+        this(16);
+    }
+
+    CellList(int capacity) {
+        cells = new long[Math.max(1, capacity)];
+    }
+
+    @Override
+    public void accept(long cell) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+        }
+        cells[size++] = cell;
+    }
+
+    void addAll(CellList other) {
+        if (size + other.size > cells.length) {
+            cells = Arrays.copyOf(cells, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.cells, 0, cells, size, other.size);
+        size += other.size;
+    }
+
+    long get(int index) {
+        return cells[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(cells, size);
+    }
+
+}
@@ -0,0 +1,164 @@
+package polygon;
+
+import coords.Coordinates;
+import geohash.GeoHash;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Mixed precision cover of a polygon.
+ * <p>
+ * Starting from the longest enclosing hash of the vertices, each cell is split into its 32 children.
+ * A cell that no edge touches is either entirely inside the polygon, and is emitted as
+ * is, or entirely outside, and is dropped along with its whole subtree. Only cells that
+ * cross the boundary are refined, and at the maximum precision those are kept when their
+ * center is inside. Expanding the result to the maximum precision gives exactly the
+ * uniform cover.
+ */
+public class CompactCover {
+
+    static final int OUTSIDE = 0;
+    static final int INSIDE = 1;
+    static final int BOUNDARY = 2;
+
+    /**
+     * Emit the cells of the compact cover, each at most maxPrecision characters long.
+     */
+    public static void cover(Coordinates[] polygon, int maxPrecision, LongConsumer cells) {
+        cover(new PreparedPolygon(polygon), maxPrecision, cells);
+    }
+
+    /**
+     * Emit the cells of the compact cover, each at most maxPrecision characters long.
+     */
+    public static void cover(PreparedPolygon polygon, int maxPrecision, LongConsumer cells) {
+        descend(polygon, polygon.enclosingCell(maxPrecision), maxPrecision, new double[4], cells);
+    }
+
+    private static void descend(PreparedPolygon polygon, long cell, int maxPrecision, double[] bbox,
+                                LongConsumer cells) {
+        GeoHash.decodeCell(cell, bbox);
+        if (GeoHash.cellPrecision(cell) == maxPrecision) {
+            double lat = (bbox[0] + bbox[2]) / 2;
+            double lon = (bbox[1] + bbox[3]) / 2;
+            if (polygon.contains(lat, lon)) {
+                cells.accept(cell);
+            }
+            return;
+        }
+        int relation = classify(polygon, bbox);
+        if (relation == INSIDE) {
+            cells.accept(cell);
+        } else if (relation == BOUNDARY) {
+            for (int i = 0; i < GeoHash.charMap.length; i++) {
+                descend(polygon, GeoHash.child(cell, i), maxPrecision, bbox, cells);
+            }
+        }
+    }
+
+    /**
+     * Split the compact cover into the cells entirely inside the polygon and the cells of
+     * maxPrecision that the boundary passes through, which get no center test.
+     */
+    public static void partition(PreparedPolygon polygon, int maxPrecision, LongConsumer interior,
+                                 LongConsumer boundary) {
+        partition(polygon, polygon.enclosingCell(maxPrecision), maxPrecision, new double[4], interior, boundary);
+    }
+
+    private static void partition(PreparedPolygon polygon, long cell, int maxPrecision, double[] bbox,
+                                  LongConsumer interior, LongConsumer boundary) {
+        GeoHash.decodeCell(cell, bbox);
+        int relation = classify(polygon, bbox);
+        if (relation == INSIDE) {
+            interior.accept(cell);
+        } else if (relation == BOUNDARY) {
+            if (GeoHash.cellPrecision(cell) == maxPrecision) {
+                boundary.accept(cell);
+                return;
+            }
+            for (int i = 0; i < GeoHash.charMap.length; i++) {
+                partition(polygon, GeoHash.child(cell, i), maxPrecision, bbox, interior, boundary);
+            }
+        }
+    }
+
+    /**
+     * Compact covers at every precision from minPrecision to maxPrecision in one descent.
+     * A cell inside the polygon is emitted once to every level at or below its own and its
+     * subtree is never visited; a boundary cell is center tested for its own level and
+     * refined for the finer ones.
+     *
+     * @param levels levels[p - minPrecision] receives the cells of the cover at precision p
+     */
+    public static void pyramid(PreparedPolygon polygon, int minPrecision, int maxPrecision, LongConsumer[] levels) {
+        pyramid(polygon, polygon.enclosingCell(minPrecision), minPrecision, maxPrecision, new double[4], levels);
+    }
+
+    private static void pyramid(PreparedPolygon polygon, long cell, int minPrecision, int maxPrecision,
+                                double[] bbox, LongConsumer[] levels) {
+        GeoHash.decodeCell(cell, bbox);
+        int precision = GeoHash.cellPrecision(cell);
+        int relation = precision == maxPrecision ? BOUNDARY : classify(polygon, bbox);
+        if (relation == INSIDE) {
+            for (int level = Math.max(precision, minPrecision); level <= maxPrecision; level++) {
+                levels[level - minPrecision].accept(cell);
+            }
+        } else if (relation == BOUNDARY) {
+            if (precision >= minPrecision && polygon.contains((bbox[0] + bbox[2]) / 2, (bbox[1] + bbox[3]) / 2)) {
+                levels[precision - minPrecision].accept(cell);
+            }
+            if (precision == maxPrecision) {
+                return;
+            }
+            for (int i = 0; i < GeoHash.charMap.length; i++) {
+                pyramid(polygon, GeoHash.child(cell, i), minPrecision, maxPrecision, bbox, levels);
+            }
+        }
+    }
+
+    /**
+     * Relation of a cell's bounding box [minlat, minlon, maxlat, maxlon] to the polygon.
+     */
+    static int classify(PreparedPolygon polygon, double[] bbox) {
+        if (polygon.edgesIntersect(bbox)) {
+            return BOUNDARY;
+        }
+        double lat = (bbox[0] + bbox[2]) / 2;
+        double lon = (bbox[1] + bbox[3]) / 2;
+        return polygon.contains(lat, lon) ? INSIDE : OUTSIDE;
+    }
+
+    /**
+     * Liang-Barsky clipping of the segment (x1, y1)-(x2, y2) against the closed box.
+     */
+    static boolean segmentIntersectsBox(double x1, double y1, double x2, double y2, double[] bbox) {
+        double minX = bbox[1], minY = bbox[0], maxX = bbox[3], maxY = bbox[2];
+        if (Math.max(x1, x2) < minX || Math.min(x1, x2) > maxX
+                || Math.max(y1, y2) < minY || Math.min(y1, y2) > maxY) {
+            return false;
+        }
+        double dx = x2 - x1, dy = y2 - y1;
+        double t0 = 0, t1 = 1;
+        for (int k = 0; k < 4; k++) {
+            double p = k == 0 ? -dx : k == 1 ? dx : k == 2 ? -dy : dy;
+            double q = k == 0 ? x1 - minX : k == 1 ? maxX - x1 : k == 2 ? y1 - minY : maxY - y1;
+            if (p == 0) {
+                if (q < 0) {
+                    return false;
+                }
+            } else {
+                double r = q / p;
+                if (p < 0) {
+                    t0 = Math.max(t0, r);
+                } else {
+                    t1 = Math.min(t1, r);
+                }
+                if (t0 > t1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
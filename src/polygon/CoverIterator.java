@@ -0,0 +1,87 @@
+package polygon;
+
+import geohash.GeoHash;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Walks the cover of a polygon at one precision in geohash lexicographic order.
+ * <p>
+ * This is the {@link CompactCover} descent driven by an explicit stack: cells on the
+ * boundary push their 32 children, cells entirely inside are enumerated child by child
+ * without further tests, and cells outside are skipped with their subtree. Memory stays
+ * at one stack of at most 32 entries per level no matter how many cells are produced.
+ */
+public class CoverIterator implements PrimitiveIterator.OfLong {
+
+    private final PreparedPolygon polygon;
+    private final int precision;
+    private final long[] stack;
+    private final double[] bbox = new double[4];
+    private int depth;
+    /**
+     * bits of the interior cells still to emit, runNext until runEnd
+     */
+    private long runNext, runEnd;
+    private long next;
+    private boolean ready;
+
+    public CoverIterator(PreparedPolygon polygon, int precision) {
+        this.polygon = polygon;
+        this.precision = precision;
+        this.stack = new long[(precision + 1) * GeoHash.charMap.length];
+        stack[depth++] = polygon.enclosingCell(precision);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            ready = advance();
+        }
+        return ready;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return next;
+    }
+
+    private boolean advance() {
+        while (true) {
+            if (runNext < runEnd) {
+                next = GeoHash.cell(runNext++, precision);
+                return true;
+            }
+            if (depth == 0) {
+                return false;
+            }
+            long cell = stack[--depth];
+            GeoHash.decodeCell(cell, bbox);
+            int cellPrecision = GeoHash.cellPrecision(cell);
+            if (cellPrecision == precision) {
+                if (polygon.contains((bbox[0] + bbox[2]) / 2, (bbox[1] + bbox[3]) / 2)) {
+                    next = cell;
+                    return true;
+                }
+                continue;
+            }
+            int relation = CompactCover.classify(polygon, bbox);
+            if (relation == CompactCover.INSIDE) {
+                int shift = (precision - cellPrecision) * GeoHash.BITS_PER_CHAR;
+                long bits = GeoHash.cellBits(cell);
+                runNext = bits << shift;
+                runEnd = (bits + 1) << shift;
+            } else if (relation == CompactCover.BOUNDARY) {
+                for (int i = GeoHash.charMap.length - 1; i >= 0; i--) {
+                    stack[depth++] = GeoHash.child(cell, i);
+                }
+            }
+        }
+    }
+
+}
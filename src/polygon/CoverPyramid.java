@@ -0,0 +1,79 @@
+package polygon;
+
+import coords.Coordinates;
+import coords.PackedRing;
+import geohash.CellSet;
+
+import java.util.HashSet;
+
+/**
+ * The center point covers of one polygon at a range of precisions, such as every zoom
+ * level of a tile map.
+ * <p>
+ * All levels come from a single top-down pass over the geohash tree. Each cell is
+ * classified once against the polygon: cells inside it fill all the finer levels without
+ * their children being looked at, cells outside it are dropped with their subtrees, and
+ * only cells on the boundary are refined. Each level is the same as the cover computed
+ * for that precision alone.
+ */
+public class CoverPyramid {
+
+    private final int minPrecision;
+    private final CellSet[] levels;
+
+    private CoverPyramid(int minPrecision, CellSet[] levels) {
+        this.minPrecision = minPrecision;
+        this.levels = levels;
+    }
+
+    public static CoverPyramid build(Coordinates[] polygon, int minPrecision, int maxPrecision) {
+        return build(new PreparedPolygon(polygon), minPrecision, maxPrecision);
+    }
+
+    public static CoverPyramid build(PackedRing polygon, int minPrecision, int maxPrecision) {
+        return build(new PreparedPolygon(polygon), minPrecision, maxPrecision);
+    }
+
+    public static CoverPyramid build(PreparedPolygon polygon, int minPrecision, int maxPrecision) {
+        if (minPrecision < 0 || minPrecision > maxPrecision) {
+            throw new IllegalArgumentException("bad precision range " + minPrecision + " to " + maxPrecision);
+        }
+        CellList[] cells = new CellList[maxPrecision - minPrecision + 1];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new CellList();
+        }
+        CompactCover.pyramid(polygon, minPrecision, maxPrecision, cells);
+        CellSet[] levels = new CellSet[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            levels[i] = CellSet.of(cells[i].toArray());
+        }
+        return new CoverPyramid(minPrecision, levels);
+    }
+
+    public int getMinPrecision() {
+        return minPrecision;
+    }
+
+    public int getMaxPrecision() {
+        return minPrecision + levels.length - 1;
+    }
+
+    /**
+     * @return the cover at the precision, as {@link GeoHashesInPolygon#coverage(PreparedPolygon, int)}
+     */
+    public CellSet getLevel(int precision) {
+        if (precision < minPrecision || precision > getMaxPrecision()) {
+            throw new IllegalArgumentException("precision " + precision + " is not in the pyramid");
+        }
+        return levels[precision - minPrecision];
+    }
+
+    /**
+     * @return the cover at the precision as geohashes, as
+     * {@link GeoHashesInPolygon#geohashesInPolygon(PreparedPolygon, int)}
+     */
+    public HashSet<String> getGeohashes(int precision) {
+        return getLevel(precision).toGeohashes(precision);
+    }
+
+}
@@ -0,0 +1,288 @@
+package polygon;
+
+import coords.Coordinates;
+import geohash.CellSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread safe cache of covers in front of {@link GeoHashesInPolygon}.
+ * <p>
+ * Polygons are keyed by a canonical form: vertices quantized to a grid, repeated and
+ * closing vertices dropped, wound counter clockwise and rotated to start at the smallest
+ * vertex. The same ring sent with a different starting vertex, winding or floating point
+ * noise below the quantum hits the same entry. Entries are evicted least recently used
+ * once their estimated size passes the byte budget. Callers asking for a key that is
+ * being computed wait for that computation instead of starting their own.
+ */
+public class CoverageCache {
+
+    /**
+     * about a centimeter at the equator
+     */
+    public static final double DEFAULT_QUANTUM = 1e-7;
+
+    private final long maxBytes;
+    private final double quantum;
+    private final LinkedHashMap<Key, CellSet> entries = new LinkedHashMap<>(16, .75f, true);
+    private final ConcurrentHashMap<Key, CompletableFuture<CellSet>> inFlight = new ConcurrentHashMap<>();
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CoverageCache(long maxBytes) {
+        this(maxBytes, DEFAULT_QUANTUM);
+    }
+
+    /**
+     * @param maxBytes budget for the estimated size of all entries
+     * @param quantum  grid, in degrees, that vertices are snapped to when building keys
+     */
+    public CoverageCache(long maxBytes, double quantum) {
+        this.maxBytes = maxBytes;
+        this.quantum = quantum;
+    }
+
+    /**
+     * @return the cover from the cache, computing it if no equivalent polygon is cached
+     */
+    public CellSet coverage(Coordinates[] polygon, int precision) {
+        return coverage(polygon, precision, () -> { });
+    }
+
+    /**
+     * @param admission run before computing, only by the one caller that computes the cover,
+     *                  so callers served from the cache or from the computation in flight are
+     *                  never charged for it; an exception it throws goes to this caller alone,
+     *                  and the callers that were waiting try again, each with its own admission
+     */
+    public CellSet coverage(Coordinates[] polygon, int precision, Runnable admission) {
+        Key key = new Key(canonicalize(polygon, quantum), precision);
+        while (true) {
+            CellSet cached = get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+
+            CompletableFuture<CellSet> created = new CompletableFuture<>();
+            CompletableFuture<CellSet> running = inFlight.putIfAbsent(key, created);
+            if (running != null) {
+                coalesced.incrementAndGet();
+                CellSet coverage;
+                try {
+                    coverage = running.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+                if (coverage != null) {
+                    return coverage;
+                }
+                // the caller computing it was not admitted
+                continue;
+            }
+            try {
+                // another caller may have finished between the lookup and claiming the key
+                CellSet coverage = get(key);
+                if (coverage != null) {
+                    hits.incrementAndGet();
+                } else {
+                    try {
+                        admission.run();
+                    } catch (RuntimeException | Error e) {
+                        // null sends the waiting callers round again, after the key is free
+                        inFlight.remove(key, created);
+                        created.complete(null);
+                        throw e;
+                    }
+                    misses.incrementAndGet();
+                    coverage = GeoHashesInPolygon.coverage(polygon, precision);
+                    put(key, coverage);
+                }
+                created.complete(coverage);
+                return coverage;
+            } catch (RuntimeException | Error e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, created);
+            }
+        }
+    }
+
+    /**
+     * @return the cover as geohash strings of the given precision
+     */
+    public HashSet<String> geohashesInPolygon(Coordinates[] polygon, int precision) {
+        return coverage(polygon, precision).toGeohashes(precision);
+    }
+
+    private synchronized CellSet get(Key key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(Key key, CellSet coverage) {
+        long size = key.estimatedBytes() + coverage.estimatedBytes();
+        if (size > maxBytes) {
+            rejected.incrementAndGet();
+            return;
+        }
+        CellSet previous = entries.put(key, coverage);
+        if (previous != null) {
+            bytes -= key.estimatedBytes() + previous.estimatedBytes();
+        }
+        bytes += size;
+        Iterator<Map.Entry<Key, CellSet>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, CellSet> entry = eldest.next();
+            bytes -= entry.getKey().estimatedBytes() + entry.getValue().estimatedBytes();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return lookups that waited on a computation already in progress
+     */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return covers not cached because alone they are larger than the byte budget
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Canonical form of a ring: quantized lat, lon pairs, counter clockwise, starting at
+     * the rotation that compares smallest.
+     */
+    static long[] canonicalize(Coordinates[] polygon, double quantum) {
+        long[] ring = new long[2 * polygon.length];
+        int n = 0;
+        for (Coordinates vertex : polygon) {
+            long lat = Math.round(vertex.getLatitude() / quantum);
+            long lon = Math.round(vertex.getLongitude() / quantum);
+            if (n > 0 && ring[2 * n - 2] == lat && ring[2 * n - 1] == lon) {
+                continue;
+            }
+            ring[2 * n] = lat;
+            ring[2 * n + 1] = lon;
+            n++;
+        }
+        while (n > 1 && ring[0] == ring[2 * n - 2] && ring[1] == ring[2 * n - 1]) {
+            n--;
+        }
+
+        double area = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            area += (double) ring[2 * j + 1] * ring[2 * i] - (double) ring[2 * i + 1] * ring[2 * j];
+        }
+        if (area < 0) {
+            for (int i = 0, j = n - 1; i < j; i++, j--) {
+                swap(ring, 2 * i, 2 * j);
+                swap(ring, 2 * i + 1, 2 * j + 1);
+            }
+        }
+
+        int best = 0;
+        for (int start = 1; start < n; start++) {
+            if (compareRotations(ring, n, start, best) < 0) {
+                best = start;
+            }
+        }
+        long[] canonical = new long[2 * n];
+        for (int i = 0; i < n; i++) {
+            canonical[2 * i] = ring[2 * ((best + i) % n)];
+            canonical[2 * i + 1] = ring[2 * ((best + i) % n) + 1];
+        }
+        return canonical;
+    }
+
+    private static int compareRotations(long[] ring, int n, int a, int b) {
+        for (int i = 0; i < n; i++) {
+            int va = 2 * ((a + i) % n), vb = 2 * ((b + i) % n);
+            int c = ring[va] != ring[vb] ? Long.compare(ring[va], ring[vb]) : Long.compare(ring[va + 1], ring[vb + 1]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static void swap(long[] values, int i, int j) {
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    private static final class Key {
+        private final long[] ring;
+        private final int precision;
+        private final int hash;
+
+        Key(long[] ring, int precision) {
+            this.ring = ring;
+            this.precision = precision;
+            this.hash = 31 * Arrays.hashCode(ring) + precision;
+        }
+
+        long estimatedBytes() {
+            return 64 + 8L * ring.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return precision == other.precision && Arrays.equals(ring, other.ring);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
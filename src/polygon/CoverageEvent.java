@@ -0,0 +1,54 @@
+package polygon;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a coverage call, carrying its {@link CoverageStats}. Disabled
+ * unless a recording enables "polygon.Coverage". Only loaded when the runtime has
+ * jdk.jfr, so coverage still runs, unrecorded, on Java 8 runtimes without it.
+ */
+@Name("polygon.Coverage")
+@Label("Polygon Coverage")
+@Category("GeoHash")
+@Description("Geohash cells computed for a polygon")
+@StackTrace(false)
+class CoverageEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(CoverageEvent.class);
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Precision")
+    int precision;
+
+    @Label("Vertices")
+    int vertices;
+
+    @Label("Estimated Cells Scanned")
+    long estimatedCellsScanned;
+
+    @Label("Estimated Point In Polygon Tests")
+    long estimatedPointInPolygonTests;
+
+    @Label("Estimated Edge Comparisons")
+    long estimatedEdgeComparisons;
+
+    @Label("Cells Emitted")
+    long cellsEmitted;
+
+    /**
+     * @return true when a running recording has the event enabled, so calls that nobody
+     * records allocate no event
+     */
+    static boolean isRecorded() {
+        return TYPE.isEnabled();
+    }
+
+}
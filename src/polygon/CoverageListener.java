@@ -0,0 +1,11 @@
+package polygon;
+
+/**
+ * Receives the {@link CoverageStats} of every coverage call, for feeding a metrics system.
+ * Called on the thread that computed the cover, so it should return quickly.
+ */
+public interface CoverageListener {
+
+    void coverageComputed(CoverageStats stats);
+
+}
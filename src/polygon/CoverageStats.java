@@ -0,0 +1,122 @@
+package polygon;
+
+import geohash.GeoHash;
+
+/**
+ * What a single coverage call did, for finding out why it was slow.
+ * <p>
+ * Only the cells emitted and the wall time are measured. The other counts are estimates,
+ * not collected while the cells are computed but derived afterwards with one pass over
+ * the rows, from the boxes of the rings and the edge index that decide how many cells and
+ * edges each engine looks at. Uninstrumented calls pay nothing.
+ *
+ * @see GeoHashesInPolygon#setListener(CoverageListener)
+ */
+public class CoverageStats {
+
+    private GeoHashesInPolygon.Engine engine;
+    private int precision;
+    private long estimatedCellsScanned;
+    private long estimatedPointInPolygonTests;
+    private long estimatedEdgeComparisons;
+    private long cellsEmitted;
+    private long wallNanos;
+
+    /**
+     * Fill in the counts of covering the polygon at the given precision with the engine.
+     */
+    void record(PreparedPolygon polygon, int precision, GeoHashesInPolygon.Engine engine, long cellsEmitted,
+                long wallNanos) {
+        double[] bounding = polygon.boundingBox();
+        double latStep = GeoHash.latStep(precision);
+        long topRow = GeoHash.latIndex(bounding[2], precision);
+        long bottomRow = GeoHash.latIndex(bounding[0], precision);
+        GeoHashesInPolygon.RowRanges ranges = new GeoHashesInPolygon.RowRanges(polygon, precision);
+
+        long edges = 0, tests = 0, testedEdges = 0;
+        for (long row = topRow; row >= bottomRow; row--) {
+            double lat = -GeoHash.LATITUDE_RANGE + (row + 0.5) * latStep;
+            int rowEdges = polygon.edgesAt(lat);
+            edges += rowEdges;
+            if (engine == GeoHashesInPolygon.Engine.POINT_IN_POLYGON) {
+                long width = ranges.width(lat);
+                tests += width;
+                testedEdges += width * rowEdges;
+            }
+        }
+        this.engine = engine;
+        this.precision = precision;
+        if (engine == GeoHashesInPolygon.Engine.SCANLINE) {
+            // one crossing computation per edge and row, the spans need no tests
+            this.estimatedCellsScanned = (topRow - bottomRow + 1) * polygon.columnCount(precision);
+            this.estimatedPointInPolygonTests = 0;
+            this.estimatedEdgeComparisons = edges;
+        } else {
+            this.estimatedCellsScanned = tests;
+            this.estimatedPointInPolygonTests = tests;
+            this.estimatedEdgeComparisons = testedEdges;
+        }
+        this.cellsEmitted = cellsEmitted;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * @return engine that computed the cover
+     */
+    public GeoHashesInPolygon.Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return precision of the cells
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return estimated cells looked at: the bounding box of the polygon for the scanline,
+     * the cells tested for point in polygon
+     */
+    public long getEstimatedCellsScanned() {
+        return estimatedCellsScanned;
+    }
+
+    /**
+     * @return estimated cell centers tested one by one against the polygon
+     */
+    public long getEstimatedPointInPolygonTests() {
+        return estimatedPointInPolygonTests;
+    }
+
+    /**
+     * @return estimated edges looked at through the edge index, over all rows or tests
+     */
+    public long getEstimatedEdgeComparisons() {
+        return estimatedEdgeComparisons;
+    }
+
+    /**
+     * @return cells in the cover
+     */
+    public long getCellsEmitted() {
+        return cellsEmitted;
+    }
+
+    /**
+     * @return wall clock time of the call, in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CoverageStats{engine=" + engine + ", precision=" + precision
+                + ", estimatedCellsScanned=" + estimatedCellsScanned
+                + ", estimatedPointInPolygonTests=" + estimatedPointInPolygonTests
+                + ", estimatedEdgeComparisons=" + estimatedEdgeComparisons
+                + ", cellsEmitted=" + cellsEmitted + ", wallNanos=" + wallNanos + '}';
+    }
+
+}
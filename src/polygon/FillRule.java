@@ -0,0 +1,17 @@
+package polygon;
+
+/**
+ * How overlapping rings decide what is inside.
+ */
+public enum FillRule {
+    /**
+     * inside when a ray from the point crosses the rings an odd number of times, as
+     * {@link PointInPolygon}; holes need no particular orientation
+     */
+    EVEN_ODD,
+    /**
+     * inside when the rings wind around the point a nonzero number of times, so
+     * overlapping polygons are unioned; holes must run against their outer ring
+     */
+    NONZERO
+}
@@ -1,17 +1,360 @@
 package polygon;
 
 import coords.Coordinates;
+import coords.MultiPolygon;
+import coords.PackedRing;
+import geohash.CellSet;
 import geohash.GeoHash;
 import geohash.GeoHashUtils;
 import geohash.LongestEnclosingGeoHash;
 
+import java.nio.CharBuffer;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 public class GeoHashesInPolygon {
 
+    /**
+     * The ways a coverage can be computed. Both give the same cells: those whose center
+     * is inside the polygon.
+     */
+    public enum Engine {
+        /**
+         * test every cell center in the bounding box against every edge
+         */
+        POINT_IN_POLYGON,
+        /**
+         * compute the edge crossings once per row and emit the interior spans
+         */
+        SCANLINE
+    }
+
+    /**
+     * Which cells of a precision make up a cover.
+     */
+    public enum Cover {
+        /**
+         * cells whose center is inside the polygon, the default
+         */
+        CENTER,
+        /**
+         * cells whose closed rectangle meets the polygon, its interior or its boundary, so
+         * every point inside lies in one of them however thin the polygon
+         */
+        TOUCHING,
+        /**
+         * cells entirely inside the polygon, with no edge touching them
+         */
+        INTERIOR
+    }
+
+    private static volatile CoverageListener listener;
+
+    /**
+     * whether the runtime has Flight Recorder; {@link CoverageEvent} is never loaded without it
+     */
+    private static final boolean FLIGHT_RECORDER = hasFlightRecorder();
+
+    /**
+     * Install a listener that gets the {@link CoverageStats} of every
+     * {@link #geohashesInPolygon} and {@link #parallelGeohashesInPolygon} call, or remove it
+     * with null. Only those two are instrumented: {@link #compactGeohashesInPolygon},
+     * {@link #cells}, {@link #coverage} and {@link CoverPyramid} report nothing, to the listener
+     * or to Flight Recorder.
+     */
+    public static void setListener(CoverageListener listener) {
+        GeoHashesInPolygon.listener = listener;
+    }
 
     public static HashSet<String> geohashesInPolygon(Coordinates[] polygon, int precision) {
-        return hashesInPoly(polygon, precision);
+        return geohashesInPolygon(polygon, precision, Engine.SCANLINE);
+    }
+
+    public static HashSet<String> geohashesInPolygon(Coordinates[] polygon, int precision, Engine engine) {
+        return geohashesInPolygon(new PreparedPolygon(polygon), precision, engine);
+    }
+
+    public static HashSet<String> geohashesInPolygon(PackedRing polygon, int precision) {
+        return geohashesInPolygon(new PreparedPolygon(polygon), precision, Engine.SCANLINE);
+    }
+
+    public static HashSet<String> geohashesInPolygon(PackedRing polygon, int precision, Engine engine) {
+        return geohashesInPolygon(new PreparedPolygon(polygon), precision, engine);
+    }
+
+    /**
+     * The cover of all polygons and holes together, in one pass over the rows whatever the
+     * number of rings.
+     */
+    public static HashSet<String> geohashesInPolygon(MultiPolygon polygon, int precision, FillRule fillRule) {
+        return geohashesInPolygon(new PreparedPolygon(polygon, fillRule), precision, Engine.SCANLINE);
+    }
+
+    public static HashSet<String> geohashesInPolygon(PreparedPolygon polygon, int precision) {
+        return geohashesInPolygon(polygon, precision, Engine.SCANLINE);
+    }
+
+    public static HashSet<String> geohashesInPolygon(PreparedPolygon polygon, int precision, Engine engine) {
+        return geohashesInPolygon(polygon, precision, engine, null);
+    }
+
+    /**
+     * @param stats receives the counts of this call, or null; the installed listener and
+     *              Flight Recorder get them either way when present
+     */
+    public static HashSet<String> geohashesInPolygon(PreparedPolygon polygon, int precision, Engine engine,
+                                                     CoverageStats stats) {
+        CoverageEvent event = beginEvent();
+        long start = System.nanoTime();
+        HashSet<String> allHashes = new HashSet<>();
+        LongConsumer collector = cell -> allHashes.add(GeoHash.toGeoHash(cell));
+        if (engine == Engine.SCANLINE) {
+            ScanlineRasterizer.rasterize(polygon, precision, collector);
+        } else {
+            hashesInPoly(polygon, precision, collector);
+        }
+        report(polygon, precision, engine, allHashes.size(), start, event, stats);
+        return allHashes;
+    }
+
+    private static boolean hasFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event", false, GeoHashesInPolygon.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return an event begun for this call, or null when no recording wants one
+     */
+    private static CoverageEvent beginEvent() {
+        if (!FLIGHT_RECORDER || !CoverageEvent.isRecorded()) {
+            return null;
+        }
+        CoverageEvent event = new CoverageEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Fill in the stats and hand them on, but only when someone asked for them.
+     */
+    private static void report(PreparedPolygon polygon, int precision, Engine engine, long cellsEmitted, long start,
+                               CoverageEvent event, CoverageStats stats) {
+        long wallNanos = System.nanoTime() - start;
+        CoverageListener listener = GeoHashesInPolygon.listener;
+        boolean recording = false;
+        if (event != null) {
+            event.end();
+            recording = event.shouldCommit();
+        }
+        if (stats == null && listener == null && !recording) {
+            return;
+        }
+        if (stats == null) {
+            stats = new CoverageStats();
+        }
+        stats.record(polygon, precision, engine, cellsEmitted, wallNanos);
+        if (recording) {
+            event.engine = engine.name();
+            event.precision = precision;
+            event.vertices = polygon.size();
+            event.estimatedCellsScanned = stats.getEstimatedCellsScanned();
+            event.estimatedPointInPolygonTests = stats.getEstimatedPointInPolygonTests();
+            event.estimatedEdgeComparisons = stats.getEstimatedEdgeComparisons();
+            event.cellsEmitted = cellsEmitted;
+            event.commit();
+        }
+        if (listener != null) {
+            listener.coverageComputed(stats);
+        }
+    }
+
+    /**
+     * The cover as a stream of cell ids in geohash lexicographic order. Cells are produced
+     * as the stream is consumed, so short-circuiting operations stop the computation.
+     */
+    public static LongStream cells(Coordinates[] polygon, int precision) {
+        return cells(new PreparedPolygon(polygon), precision);
+    }
+
+    public static LongStream cells(PackedRing polygon, int precision) {
+        return cells(new PreparedPolygon(polygon), precision);
+    }
+
+    public static LongStream cells(PreparedPolygon polygon, int precision) {
+        Spliterator.OfLong spliterator = Spliterators.spliteratorUnknownSize(new CoverIterator(polygon, precision),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+                        | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.longStream(spliterator, false);
+    }
+
+    /**
+     * Hand each cell id of the cover to the visitor, in geohash lexicographic order,
+     * until it returns false.
+     *
+     * @return true when every cell was visited
+     */
+    public static boolean forEachCell(PreparedPolygon polygon, int precision, LongPredicate visitor) {
+        CoverIterator cells = new CoverIterator(polygon, precision);
+        while (cells.hasNext()) {
+            if (!visitor.test(cells.nextLong())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hand each geohash of the cover to the visitor, in lexicographic order, until it
+     * returns false. The same CharSequence is rewritten for every hash, so copy it if it
+     * has to outlive the call.
+     *
+     * @return true when every cell was visited
+     */
+    public static boolean forEachGeohash(PreparedPolygon polygon, int precision, Predicate<CharSequence> visitor) {
+        char[] chars = new char[precision];
+        CharBuffer hash = CharBuffer.wrap(chars);
+        return forEachCell(polygon, precision, cell -> {
+            GeoHash.toChars(cell, chars, 0);
+            return visitor.test(hash);
+        });
+    }
+
+    /**
+     * Same cells as {@link #geohashesInPolygon(Coordinates[], int)}, computed in bands of rows
+     * on the common fork/join pool once the bounding box holds enough cells.
+     */
+    public static HashSet<String> parallelGeohashesInPolygon(Coordinates[] polygon, int precision) {
+        return parallelGeohashesInPolygon(new PreparedPolygon(polygon), precision, ForkJoinPool.commonPool(),
+                ParallelRasterizer.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold bounding box cells below which the calling thread does all the work
+     */
+    public static HashSet<String> parallelGeohashesInPolygon(PreparedPolygon polygon, int precision,
+                                                             ForkJoinPool pool, long threshold) {
+        CoverageEvent event = beginEvent();
+        long start = System.nanoTime();
+        long[] cells = ParallelRasterizer.rasterize(polygon, precision, pool, threshold);
+        HashSet<String> allHashes = new HashSet<>(Math.max(16, (int) (cells.length / .75f) + 1));
+        for (long cell : cells) {
+            allHashes.add(GeoHash.toGeoHash(cell));
+        }
+        report(polygon, precision, Engine.SCANLINE, cells.length, start, event, null);
+        return allHashes;
+    }
+
+    /**
+     * Mixed precision cover: cells entirely inside the polygon are kept at the coarsest
+     * precision possible, only cells on the boundary are refined down to maxPrecision.
+     *
+     * @see #expand(Set, int)
+     */
+    public static HashSet<String> compactGeohashesInPolygon(Coordinates[] polygon, int maxPrecision) {
+        return compactGeohashesInPolygon(new PreparedPolygon(polygon), maxPrecision);
+    }
+
+    public static HashSet<String> compactGeohashesInPolygon(PreparedPolygon polygon, int maxPrecision) {
+        HashSet<String> allHashes = new HashSet<>();
+        CompactCover.cover(polygon, maxPrecision, cell -> allHashes.add(GeoHash.toGeoHash(cell)));
+        return allHashes;
+    }
+
+    /**
+     * The cover at the given precision as a compact {@link CellSet}. Interior cells are
+     * found through the compact cover, so the set is built without enumerating them.
+     */
+    public static CellSet coverage(Coordinates[] polygon, int precision) {
+        return coverage(new PreparedPolygon(polygon), precision);
+    }
+
+    public static CellSet coverage(PackedRing polygon, int precision) {
+        return coverage(new PreparedPolygon(polygon), precision);
+    }
+
+    public static CellSet coverage(MultiPolygon polygon, int precision, FillRule fillRule) {
+        return coverage(new PreparedPolygon(polygon, fillRule), precision);
+    }
+
+    public static CellSet coverage(PreparedPolygon polygon, int precision) {
+        CellList cells = new CellList();
+        CompactCover.cover(polygon, precision, cells);
+        return CellSet.of(cells.toArray());
+    }
+
+    /**
+     * The cover of the given kind as a compact {@link CellSet}. Cells are classified as
+     * inside, outside or on the boundary by exact rectangle and edge intersection through
+     * the edge index, coarse cells first, so cells inside are never refined.
+     */
+    public static CellSet coverage(Coordinates[] polygon, int precision, Cover cover) {
+        return coverage(new PreparedPolygon(polygon), precision, cover);
+    }
+
+    public static CellSet coverage(PreparedPolygon polygon, int precision, Cover cover) {
+        if (cover == Cover.CENTER) {
+            return coverage(polygon, precision);
+        }
+        CellList cells = new CellList();
+        CompactCover.partition(polygon, precision, cells, cover == Cover.TOUCHING ? cells : cell -> {
+        });
+        return CellSet.of(cells.toArray());
+    }
+
+    /**
+     * The cover of the given kind as geohashes of the given precision.
+     */
+    public static HashSet<String> geohashesInPolygon(Coordinates[] polygon, int precision, Cover cover) {
+        return geohashesInPolygon(new PreparedPolygon(polygon), precision, cover);
+    }
+
+    public static HashSet<String> geohashesInPolygon(PreparedPolygon polygon, int precision, Cover cover) {
+        if (cover == Cover.CENTER) {
+            return geohashesInPolygon(polygon, precision);
+        }
+        return coverage(polygon, precision, cover).toGeohashes(precision);
+    }
+
+    /**
+     * Expand a mixed precision cover to a uniform precision. Hashes already longer than
+     * precision are cut down to it.
+     */
+    public static HashSet<String> expand(Set<String> hashes, int precision) {
+        HashSet<String> allHashes = new HashSet<>();
+        for (String hash : hashes) {
+            if (hash.length() >= precision) {
+                allHashes.add(hash.substring(0, precision));
+                continue;
+            }
+            int shift = (precision - hash.length()) * GeoHash.BITS_PER_CHAR;
+            long bits = GeoHash.cellBits(GeoHash.toCell(hash));
+            for (long child = bits << shift, end = (bits + 1) << shift; child < end; child++) {
+                allHashes.add(GeoHash.toGeoHash(GeoHash.cell(child, precision)));
+            }
+        }
+        return allHashes;
+    }
+
+    /**
+     * The cover at the finest precision estimated to stay within maxCells cells.
+     *
+     * @see PrecisionSelector#forCellBudget(long)
+     */
+    public static HashSet<String> geohashesWithinBudget(Coordinates[] polygon, long maxCells) {
+        PreparedPolygon prepared = new PreparedPolygon(polygon);
+        return geohashesInPolygon(prepared, new PrecisionSelector(prepared).forCellBudget(maxCells));
     }
 
     public static HashSet<String> hashesInPoly(Coordinates[] polygon) {
@@ -20,28 +363,96 @@ public class GeoHashesInPolygon {
         return geohashesInPolygon(polygon, precision);
     }
 
-    private static HashSet<String> hashesInPoly(Coordinates[] polygon, int precision) {
-        double[] bounding = GeoHashUtils.polyToBB(polygon);
-        HashSet<String> allHashes = new HashSet<>();
-        String rowHash = GeoHash.encode(bounding[2], bounding[1], precision);
-        double[] rowBox = GeoHash.decode_bbox(rowHash);
-        do {
-            String columnHash = rowHash;
-            double[] columnBox = rowBox;
-            while (GeoHashUtils.isWest(columnBox[1], bounding[3])) {
-                int inside = GeoHashUtils.inside(GeoHashUtils.decodeWithError(columnHash), polygon);
-                if (inside % 2 == 1) {
-                    allHashes.add(columnHash);
+    public static HashSet<String> hashesInPoly(PackedRing polygon) {
+        int longestEnclosingHashLength = LongestEnclosingGeoHash.longestEnclosingHash(polygon).length();
+        int precision = longestEnclosingHashLength + 2;
+        return geohashesInPolygon(polygon, precision);
+    }
+
+    private static void hashesInPoly(PreparedPolygon polygon, int precision, LongConsumer cells) {
+        double[] bounding = polygon.boundingBox();
+        double latStep = GeoHash.latStep(precision);
+        double lonStep = GeoHash.lonStep(precision);
+        long columnMask = GeoHash.columns(precision) - 1;
+        long topRow = GeoHash.latIndex(bounding[2], precision);
+        long bottomRow = GeoHash.latIndex(bounding[0], precision);
+        RowRanges ranges = new RowRanges(polygon, precision);
+
+        for (long row = topRow; row >= bottomRow; row--) {
+            double lat = -GeoHash.LATITUDE_RANGE + (row + 0.5) * latStep;
+            int count = ranges.at(lat);
+            long scanned = Long.MIN_VALUE;
+            for (int k = 0; k < count; k++) {
+                for (long column = Math.max(ranges.starts[k], scanned + 1); column <= ranges.ends[k]; column++) {
+                    double lon = -GeoHash.LONGITUDE_RANGE + (column + 0.5) * lonStep;
+                    if (GeoHashUtils.inside(lat, lon, polygon)) {
+                        cells.accept(GeoHash.cellAt(row, column & columnMask, precision));
+                    }
                 }
-                columnHash = GeoHashUtils.neighbor(columnHash, new int[]{0, 1});
-                columnBox = GeoHash.decode_bbox(columnHash);
+                scanned = Math.max(scanned, ranges.ends[k]);
             }
-            rowHash = GeoHashUtils.neighbor(rowHash, new int[]{-1, 0});
-            rowBox = GeoHash.decode_bbox(rowHash);
+        }
+    }
 
-        } while (rowBox[2] > bounding[0]);
+    /**
+     * Columns the point in polygon engine tests in a row. Only the columns of rings reaching
+     * a row can be inside, so rows scan the union of those rings' boxes instead of the box of
+     * the whole polygon.
+     */
+    static final class RowRanges {
+        private final double[][] boxes;
+        private final long[][] columns;
+        /**
+         * column ranges, inclusive, of the rings reaching the last row asked for, by start
+         */
+        final long[] starts;
+        final long[] ends;
 
-        return allHashes;
+        RowRanges(PreparedPolygon polygon, int precision) {
+            int rings = polygon.ringCount();
+            boxes = new double[rings][];
+            columns = new long[rings][];
+            for (int r = 0; r < rings; r++) {
+                boxes[r] = polygon.ringBox(r);
+                columns[r] = new long[]{GeoHash.lonIndex(boxes[r][1], precision),
+                        PreparedPolygon.column(boxes[r][3], precision)};
+            }
+            starts = new long[rings];
+            ends = new long[rings];
+        }
+
+        /**
+         * @return number of ranges, possibly overlapping, filled in for the row at lat
+         */
+        int at(double lat) {
+            int count = 0;
+            for (int r = 0; r < boxes.length; r++) {
+                if (boxes[r][0] <= lat && lat <= boxes[r][2]) {
+                    // insertion by start, so overlapping ranges can be merged by the caller
+                    int k = count++;
+                    for (; k > 0 && starts[k - 1] > columns[r][0]; k--) {
+                        starts[k] = starts[k - 1];
+                        ends[k] = ends[k - 1];
+                    }
+                    starts[k] = columns[r][0];
+                    ends[k] = columns[r][1];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return columns tested in the row at lat, overlaps counted once
+         */
+        long width(double lat) {
+            int count = at(lat);
+            long width = 0, scanned = Long.MIN_VALUE;
+            for (int k = 0; k < count; k++) {
+                width += Math.max(0, ends[k] - Math.max(starts[k], scanned + 1) + 1);
+                scanned = Math.max(scanned, ends[k]);
+            }
+            return width;
+        }
     }
 
 
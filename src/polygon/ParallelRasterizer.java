@@ -0,0 +1,82 @@
+package polygon;
+
+import geohash.GeoHash;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs the {@link ScanlineRasterizer} over bands of rows on a fork/join pool.
+ * <p>
+ * Every task fills its own {@link CellList} and the lists are concatenated north to
+ * south when the tasks join, so no state is shared while rasterizing and the cells come
+ * out in the same order as from the sequential rasterizer.
+ */
+public class ParallelRasterizer {
+
+    /**
+     * bounding boxes with fewer cells than this are rasterized on the calling thread
+     */
+    public static final long DEFAULT_THRESHOLD = 1 << 16;
+
+    /**
+     * each worker gets roughly this many bands to balance uneven rows
+     */
+    private static final int BANDS_PER_WORKER = 4;
+
+    /**
+     * @param threshold bounding box cells below which the calling thread does all the work
+     * @return the cell ids in the same order as {@link ScanlineRasterizer#rasterize}
+     */
+    public static long[] rasterize(PreparedPolygon polygon, int precision, ForkJoinPool pool, long threshold) {
+        double[] bounding = polygon.boundingBox();
+        long topRow = GeoHash.latIndex(bounding[2], precision);
+        long bottomRow = GeoHash.latIndex(bounding[0], precision);
+        long columnCount = polygon.columnCount(precision);
+        long rows = topRow - bottomRow + 1;
+
+        if (rows * columnCount < threshold || rows == 1) {
+            CellList cells = new CellList();
+            ScanlineRasterizer.rasterize(polygon, precision, topRow, bottomRow, cells);
+            return cells.toArray();
+        }
+        long bandRows = Math.max(1, rows / ((long) pool.getParallelism() * BANDS_PER_WORKER));
+        return pool.invoke(new Band(polygon, precision, topRow, bottomRow, bandRows)).toArray();
+    }
+
+    private static class Band extends RecursiveTask<CellList> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PreparedPolygon polygon;
+        private final int precision;
+        private final long topRow;
+        private final long bottomRow;
+        private final long bandRows;
+
+        Band(PreparedPolygon polygon, int precision, long topRow, long bottomRow, long bandRows) {
+            this.polygon = polygon;
+            this.precision = precision;
+            this.topRow = topRow;
+            this.bottomRow = bottomRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected CellList compute() {
+            if (topRow - bottomRow + 1 <= bandRows) {
+                CellList cells = new CellList();
+                ScanlineRasterizer.rasterize(polygon, precision, topRow, bottomRow, cells);
+                return cells;
+            }
+            long middle = bottomRow + (topRow - bottomRow + 1) / 2;
+            Band north = new Band(polygon, precision, topRow, middle, bandRows);
+            Band south = new Band(polygon, precision, middle - 1, bottomRow, bandRows);
+            south.fork();
+            CellList cells = north.compute();
+            cells.addAll(south.join());
+            return cells;
+        }
+    }
+
+}
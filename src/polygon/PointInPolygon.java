@@ -1,6 +1,7 @@
 package polygon;
 
 import coords.Coordinates;
+import coords.PackedRing;
 
 
 public class PointInPolygon {
@@ -9,8 +10,14 @@ public class PointInPolygon {
      * <a href="http://www.ecse.rpi.edu/Homepages/wrf/Research/Short_Notes/pnpoly.html">...</a>
      */
     public static boolean pointInPolygon(double[] point, Coordinates[] vs) {
+        return pointInPolygon(point[0], point[1], vs);
+    }
 
-        double x = point[0], y = point[1];
+    /**
+     * @param x longitude of the point
+     * @param y latitude of the point
+     */
+    public static boolean pointInPolygon(double x, double y, Coordinates[] vs) {
 
         boolean inside = false;
         for (int i = 0, j = vs.length - 1; i < vs.length; j = i++) {
@@ -25,4 +32,23 @@ public class PointInPolygon {
         return inside;
     }
 
+    /**
+     * @param x longitude of the point
+     * @param y latitude of the point
+     */
+    public static boolean pointInPolygon(double x, double y, PackedRing vs) {
+
+        boolean inside = false;
+        for (int i = 0, j = vs.size() - 1; i < vs.size(); j = i++) {
+            double xi = vs.longitude(i), yi = vs.latitude(i);
+            double xj = vs.longitude(j), yj = vs.latitude(j);
+
+            boolean intersect = ((yi > y) != (yj > y))
+                    && (x < (xj - xi) * (y - yi) / (yj - yi) + xi);
+            if (intersect) inside = !inside;
+        }
+
+        return inside;
+    }
+
 }
@@ -0,0 +1,145 @@
+package polygon;
+
+import coords.Coordinates;
+import coords.PackedRing;
+import geohash.GeoHash;
+
+/**
+ * Picks the precision of a cover from a budget instead of from the longest enclosing hash.
+ * <p>
+ * The cells of a cover at any precision are bounded before scanning: cells entirely inside
+ * the polygon number at most its area over the cell area, and every other cell with its
+ * center inside is touched by an edge, which crosses at most one cell per grid line it
+ * passes plus a few. Both terms come from the area and the summed edge extents, measured
+ * once, so each candidate precision is estimated in constant time. The estimate is capped
+ * by the cells of the bounding box and is an upper bound for simple polygons; for self
+ * intersecting ones the area term may fall short and only the bounding box is a bound.
+ */
+public class PrecisionSelector {
+
+    /**
+     * measured cost of emitting one geohash of a cover into a set, in nanoseconds
+     */
+    public static final double DEFAULT_NANOS_PER_CELL = 150;
+
+    /**
+     * measured cost of computing and sorting one edge crossing of a row, in nanoseconds
+     */
+    public static final double DEFAULT_NANOS_PER_CROSSING = 25;
+
+    /**
+     * cells an edge can touch beyond the grid lines it crosses
+     */
+    private static final int CELLS_PER_EDGE = 3;
+
+    private final double area;
+    private final double latExtent;
+    private final double lonExtent;
+    private final int edges;
+    private final double[] bounding;
+    private final PreparedPolygon polygon;
+
+    public PrecisionSelector(Coordinates[] polygon) {
+        this(new PreparedPolygon(polygon));
+    }
+
+    public PrecisionSelector(PackedRing polygon) {
+        this(new PreparedPolygon(polygon));
+    }
+
+    public PrecisionSelector(PreparedPolygon polygon) {
+        int n = polygon.size();
+        double twiceArea = 0, latExtent = 0, lonExtent = 0;
+        for (int i = 0; i < n; i++) {
+            int j = polygon.previous(i);
+            twiceArea += polygon.longitude(j) * polygon.latitude(i) - polygon.longitude(i) * polygon.latitude(j);
+            latExtent += Math.abs(polygon.latitude(i) - polygon.latitude(j));
+            lonExtent += Math.abs(polygon.longitude(i) - polygon.longitude(j));
+        }
+        this.area = Math.abs(twiceArea) / 2;
+        this.latExtent = latExtent;
+        this.lonExtent = lonExtent;
+        this.edges = n;
+        this.bounding = polygon.boundingBox();
+        this.polygon = polygon;
+    }
+
+    /**
+     * @return area of the polygon in square degrees, by the shoelace formula
+     */
+    public double area() {
+        return area;
+    }
+
+    /**
+     * @return cells in the bounding box of the polygon at the precision
+     */
+    public long boundingBoxCells(int precision) {
+        long rows = GeoHash.latIndex(bounding[2], precision) - GeoHash.latIndex(bounding[0], precision) + 1;
+        return rows * polygon.columnCount(precision);
+    }
+
+    /**
+     * @return upper estimate of the cells in the cover at the precision
+     */
+    public long estimateCells(int precision) {
+        double latStep = GeoHash.latStep(precision);
+        double lonStep = GeoHash.lonStep(precision);
+        double interior = area / (latStep * lonStep);
+        double boundary = latExtent / latStep + lonExtent / lonStep + (double) CELLS_PER_EDGE * edges;
+        return (long) Math.min(boundingBoxCells(precision), Math.ceil(interior + boundary));
+    }
+
+    /**
+     * @return estimate of the edge crossings the scanline computes at the precision: one per
+     * row an edge spans, at least one per edge
+     */
+    public long estimateCrossings(int precision) {
+        return (long) Math.ceil(latExtent / GeoHash.latStep(precision)) + edges;
+    }
+
+    /**
+     * @return estimated wall time of {@link GeoHashesInPolygon#geohashesInPolygon} at the
+     * precision, in nanoseconds
+     */
+    public double estimateNanos(int precision, double nanosPerCell, double nanosPerCrossing) {
+        return estimateCells(precision) * nanosPerCell + estimateCrossings(precision) * nanosPerCrossing;
+    }
+
+    /**
+     * @return the finest precision whose estimated cover holds at most maxCells cells, and
+     * 1 when not even the coarsest precision fits
+     */
+    public int forCellBudget(long maxCells) {
+        int precision = 1;
+        while (precision < GeoHash.MAX_PRECISION && estimateCells(precision + 1) <= maxCells) {
+            precision++;
+        }
+        return precision;
+    }
+
+    /**
+     * @return the finest precision whose estimated cover takes at most targetNanos with the
+     * default costs
+     */
+    public int forLatency(long targetNanos) {
+        return forLatency(targetNanos, DEFAULT_NANOS_PER_CELL, DEFAULT_NANOS_PER_CROSSING);
+    }
+
+    /**
+     * @param nanosPerCell     cost of one emitted cell, for example from
+     *                         {@link CoverageStats#getWallNanos()} over {@link CoverageStats#getCellsEmitted()}
+     * @param nanosPerCrossing cost of one edge crossing
+     * @return the finest precision whose estimated cover takes at most targetNanos, and 1
+     * when not even the coarsest precision fits
+     */
+    public int forLatency(long targetNanos, double nanosPerCell, double nanosPerCrossing) {
+        int precision = 1;
+        while (precision < GeoHash.MAX_PRECISION
+                && estimateNanos(precision + 1, nanosPerCell, nanosPerCrossing) <= targetNanos) {
+            precision++;
+        }
+        return precision;
+    }
+
+}
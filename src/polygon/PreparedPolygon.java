@@ -0,0 +1,495 @@
+package polygon;
+
+import coords.Coordinates;
+import coords.MultiPolygon;
+import coords.PackedRing;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+
+import java.util.Arrays;
+
+/**
+ * A polygon prepared for many containment queries.
+ * <p>
+ * The vertices are kept in flat latitude and longitude arrays, and the edges are
+ * bucketed into horizontal bands of equal height. A query at a given latitude only
+ * looks at the edges of the band that latitude falls in. Crossings are computed with
+ * the same arithmetic as {@link PointInPolygon}, so answers are identical to it.
+ * <p>
+ * Any number of rings can be prepared together, outer rings and holes alike, under
+ * either {@link FillRule}; every query then looks at the edges of all rings at once.
+ * Rings of a {@link MultiPolygon#wrapping wrapping} multipolygon are unwrapped across the
+ * antimeridian, so their longitudes may run past 180 and the bounding box stays as tight
+ * as the rings.
+ */
+public class PreparedPolygon {
+
+    /**
+     * bands are halved until the index holds at most this many entries per edge
+     */
+    private static final int MAX_ENTRIES_PER_EDGE = 8;
+
+    private final FillRule fillRule;
+    private final double[] lats;
+    private final double[] lons;
+    /**
+     * edge i runs from vertex i to vertex previous[i], the vertex before it in its ring
+     */
+    private final int[] previous;
+    /**
+     * [minlat, minlon, maxlat, maxlon] of each ring
+     */
+    private final double[] ringBoxes;
+    private final double minLat, minLon, maxLat, maxLon;
+    private final int bands;
+    private final double bandHeight;
+    /**
+     * edges of band b are bandEdges[bandStarts[b]] until bandEdges[bandStarts[b + 1]]
+     */
+    private final int[] bandStarts;
+    private final int[] bandEdges;
+    private final int maxBandSize;
+
+    public PreparedPolygon(Coordinates[] polygon) {
+        this(PackedRing.of(polygon));
+    }
+
+    public PreparedPolygon(PackedRing polygon) {
+        this(FillRule.EVEN_ODD, null, false, polygon);
+    }
+
+    /**
+     * Prepare rings as given, without unwrapping or reorienting them.
+     */
+    public PreparedPolygon(FillRule fillRule, PackedRing... rings) {
+        this(fillRule, null, false, rings);
+    }
+
+    /**
+     * Prepare all rings of the polygons for a single pass. Rings of a wrapping multipolygon
+     * are unwrapped across the antimeridian and, for {@link FillRule#NONZERO}, rings are
+     * oriented so holes cut out of their polygon and overlapping polygons add up.
+     */
+    public PreparedPolygon(MultiPolygon polygon, FillRule fillRule) {
+        this(fillRule, holes(polygon), polygon.isWrapping(), rings(polygon));
+    }
+
+    private static boolean[] holes(MultiPolygon polygon) {
+        boolean[] holes = new boolean[polygon.ringCount()];
+        int r = 0;
+        for (int p = 0; p < polygon.size(); p++) {
+            r++;
+            for (int h = 0; h < polygon.holeCount(p); h++) {
+                holes[r++] = true;
+            }
+        }
+        return holes;
+    }
+
+    private static PackedRing[] rings(MultiPolygon polygon) {
+        PackedRing[] rings = new PackedRing[polygon.ringCount()];
+        int r = 0;
+        for (int p = 0; p < polygon.size(); p++) {
+            rings[r++] = polygon.outer(p);
+            for (int h = 0; h < polygon.holeCount(p); h++) {
+                rings[r++] = polygon.hole(p, h);
+            }
+        }
+        return rings;
+    }
+
+    /**
+     * @param holes which rings are holes, to orient the rings; null to take them as they are
+     * @param wrap  whether to join vertices the shorter way around
+     */
+    private PreparedPolygon(FillRule fillRule, boolean[] holes, boolean wrap, PackedRing... rings) {
+        this.fillRule = fillRule;
+        int n = 0;
+        for (PackedRing ring : rings) {
+            n += ring.size();
+        }
+        lats = new double[n];
+        lons = new double[n];
+        previous = new int[n];
+        ringBoxes = new double[4 * rings.length];
+        for (int r = 0, offset = 0; r < rings.length; offset += rings[r++].size()) {
+            PackedRing ring = rings[r];
+            for (int i = 0; i < ring.size(); i++) {
+                lats[offset + i] = ring.latitude(i);
+                lons[offset + i] = ring.longitude(i);
+                previous[offset + i] = i == 0 ? offset + ring.size() - 1 : offset + i - 1;
+            }
+            if (wrap) {
+                // each ring starts within half a turn of the first, then follows its edges
+                double reference = r == 0 ? lons[0] : GeoHashUtils.unwrap(lons[0], lons[offset]);
+                lons[offset] = reference;
+                for (int i = 1; i < ring.size(); i++) {
+                    lons[offset + i] = GeoHashUtils.unwrap(lons[offset + i - 1], lons[offset + i]);
+                }
+            }
+        }
+        if (wrap) {
+            shiftWest();
+        }
+        if (holes != null && fillRule == FillRule.NONZERO) {
+            orient(rings, holes);
+        }
+
+        double minLat = Double.MAX_VALUE, minLon = minLat, maxLat = -minLat, maxLon = -minLat;
+        for (int r = 0, offset = 0; r < rings.length; offset += rings[r++].size()) {
+            double ringMinLat = Double.MAX_VALUE, ringMinLon = ringMinLat, ringMaxLat = -ringMinLat,
+                    ringMaxLon = -ringMinLat;
+            for (int i = offset; i < offset + rings[r].size(); i++) {
+                ringMinLat = Math.min(ringMinLat, lats[i]);
+                ringMinLon = Math.min(ringMinLon, lons[i]);
+                ringMaxLat = Math.max(ringMaxLat, lats[i]);
+                ringMaxLon = Math.max(ringMaxLon, lons[i]);
+            }
+            ringBoxes[4 * r] = ringMinLat;
+            ringBoxes[4 * r + 1] = ringMinLon;
+            ringBoxes[4 * r + 2] = ringMaxLat;
+            ringBoxes[4 * r + 3] = ringMaxLon;
+            minLat = Math.min(minLat, ringMinLat);
+            minLon = Math.min(minLon, ringMinLon);
+            maxLat = Math.max(maxLat, ringMaxLat);
+            maxLon = Math.max(maxLon, ringMaxLon);
+        }
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+
+        int bands = Math.max(1, n);
+        int[] counts;
+        while (true) {
+            counts = countBandEntries(bands, (maxLat - minLat) / bands);
+            if (bands == 1 || counts[bands] <= (long) MAX_ENTRIES_PER_EDGE * n) {
+                break;
+            }
+            bands /= 2;
+        }
+        this.bands = bands;
+        this.bandHeight = (maxLat - minLat) / bands;
+
+        bandStarts = new int[bands + 1];
+        int max = 0;
+        for (int b = 0; b < bands; b++) {
+            bandStarts[b + 1] = bandStarts[b] + counts[b];
+            max = Math.max(max, counts[b]);
+        }
+        maxBandSize = max;
+        bandEdges = new int[bandStarts[bands]];
+        int[] fill = new int[bands];
+        for (int i = 0; i < n; i++) {
+            int j = previous[i];
+            for (int b = band(Math.min(lats[i], lats[j])), last = band(Math.max(lats[i], lats[j])); b <= last; b++) {
+                bandEdges[bandStarts[b] + fill[b]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Shift unwrapped longitudes by whole turns so the westernmost lies in [-180, 180).
+     */
+    private void shiftWest() {
+        double west = Double.MAX_VALUE;
+        for (double lon : lons) {
+            west = Math.min(west, lon);
+        }
+        double shift = -360 * Math.floor((west + 180) / 360);
+        if (shift != 0) {
+            for (int i = 0; i < lons.length; i++) {
+                lons[i] += shift;
+            }
+        }
+    }
+
+    /**
+     * Turn outer rings counterclockwise and holes clockwise, for the nonzero rule.
+     */
+    private void orient(PackedRing[] rings, boolean[] holes) {
+        for (int r = 0, offset = 0; r < rings.length; offset += rings[r++].size()) {
+            int size = rings[r].size();
+            double twiceArea = 0;
+            for (int i = offset; i < offset + size; i++) {
+                twiceArea += lons[previous[i]] * lats[i] - lons[i] * lats[previous[i]];
+            }
+            boolean counterclockwise = twiceArea > 0;
+            if (counterclockwise == holes[r]) {
+                reverse(lats, offset, size);
+                reverse(lons, offset, size);
+            }
+        }
+    }
+
+    private static void reverse(double[] values, int offset, int length) {
+        for (int i = offset, j = offset + length - 1; i < j; i++, j--) {
+            double swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    /**
+     * @return entries per band for the given band layout, with the total in the last slot
+     */
+    private int[] countBandEntries(int bands, double bandHeight) {
+        int n = lats.length;
+        int[] counts = new int[bands + 1];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            int j = previous[i];
+            int first = band(Math.min(lats[i], lats[j]), bands, bandHeight);
+            int last = band(Math.max(lats[i], lats[j]), bands, bandHeight);
+            counts[first]++;
+            counts[last + 1]--;
+            total += last - first + 1;
+        }
+        for (int b = 1; b < bands; b++) {
+            counts[b] += counts[b - 1];
+        }
+        counts[bands] = (int) Math.min(Integer.MAX_VALUE, total);
+        return counts;
+    }
+
+    private int band(double lat) {
+        return band(lat, bands, bandHeight);
+    }
+
+    private int band(double lat, int bands, double bandHeight) {
+        if (!(bandHeight > 0)) {
+            return 0;
+        }
+        int b = (int) ((lat - minLat) / bandHeight);
+        return b < 0 ? 0 : Math.min(b, bands - 1);
+    }
+
+    /**
+     * ray-casting containment test, as {@link PointInPolygon#pointInPolygon(double, double, Coordinates[])}
+     * for the even-odd rule. Longitudes west of an antimeridian crossing polygon are also
+     * tried a turn further east.
+     */
+    public boolean contains(double lat, double lon) {
+        if (lat < minLat || lat > maxLat) {
+            return false;
+        }
+        if (lon < minLon && lon + 360 <= maxLon) {
+            lon += 360;
+        }
+        int b = band(lat);
+        boolean inside = false;
+        int winding = 0;
+        for (int k = bandStarts[b], end = bandStarts[b + 1]; k < end; k++) {
+            int i = bandEdges[k];
+            int j = previous[i];
+            double xi = lons[i], yi = lats[i];
+            double xj = lons[j], yj = lats[j];
+
+            boolean intersect = ((yi > lat) != (yj > lat))
+                    && (lon < (xj - xi) * (lat - yi) / (yj - yi) + xi);
+            if (intersect) {
+                inside = !inside;
+                winding += yi > lat ? 1 : -1;
+            }
+        }
+        return fillRule == FillRule.EVEN_ODD ? inside : winding != 0;
+    }
+
+    /**
+     * Longitudes where latitude y passes between outside and inside. For the even-odd rule
+     * those are all the edge crossings, unsorted. For the nonzero rule they are the
+     * crossings where the winding number turns zero or nonzero, in order.
+     *
+     * @param out at least {@link #maxCrossings()} long
+     * @return number of crossings written
+     */
+    int crossings(double y, double[] out) {
+        if (y < minLat || y > maxLat) {
+            return 0;
+        }
+        int b = band(y);
+        if (fillRule == FillRule.EVEN_ODD) {
+            int count = 0;
+            for (int k = bandStarts[b], end = bandStarts[b + 1]; k < end; k++) {
+                int i = bandEdges[k];
+                int j = previous[i];
+                double xi = lons[i], yi = lats[i];
+                double xj = lons[j], yj = lats[j];
+                if ((yi > y) != (yj > y)) {
+                    out[count++] = (xj - xi) * (y - yi) / (yj - yi) + xi;
+                }
+            }
+            return count;
+        }
+
+        // upward crossings fill the second half of out from its start, downward ones from its end
+        int half = maxBandSize, up = half, down = 2 * half;
+        for (int k = bandStarts[b], end = bandStarts[b + 1]; k < end; k++) {
+            int i = bandEdges[k];
+            int j = previous[i];
+            double xi = lons[i], yi = lats[i];
+            double xj = lons[j], yj = lats[j];
+            if ((yi > y) != (yj > y)) {
+                double x = (xj - xi) * (y - yi) / (yj - yi) + xi;
+                if (yi > y) {
+                    out[up++] = x;
+                } else {
+                    out[--down] = x;
+                }
+            }
+        }
+        Arrays.sort(out, half, up);
+        Arrays.sort(out, down, 2 * half);
+        int count = 0, winding = 0;
+        for (int u = half, d = down; u < up || d < 2 * half; ) {
+            boolean upward = d == 2 * half || (u < up && out[u] <= out[d]);
+            double x = upward ? out[u++] : out[d++];
+            int before = winding;
+            winding += upward ? 1 : -1;
+            if ((before == 0) != (winding == 0)) {
+                out[count++] = x;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return size of the scratch space {@link #crossings} needs
+     */
+    int maxCrossings() {
+        return fillRule == FillRule.EVEN_ODD ? maxBandSize : 2 * maxBandSize;
+    }
+
+    /**
+     * @return number of edges a query at latitude y looks at
+     */
+    int edgesAt(double y) {
+        if (y < minLat || y > maxLat) {
+            return 0;
+        }
+        int b = band(y);
+        return bandStarts[b + 1] - bandStarts[b];
+    }
+
+    /**
+     * @return number of rings
+     */
+    int ringCount() {
+        return ringBoxes.length / 4;
+    }
+
+    /**
+     * @return [minlat, minlon, maxlat, maxlon] of ring r, in unwrapped longitudes
+     */
+    double[] ringBox(int r) {
+        return Arrays.copyOfRange(ringBoxes, 4 * r, 4 * r + 4);
+    }
+
+    /**
+     * @return the first column of the bounding box at the precision
+     */
+    long westColumn(int precision) {
+        return GeoHash.lonIndex(minLon, precision);
+    }
+
+    /**
+     * @return columns of the bounding box at the precision, running east from
+     * {@link #westColumn(int)} and past the antimeridian for polygons that cross it
+     */
+    long columnCount(int precision) {
+        return Math.min(GeoHash.columns(precision), column(maxLon, precision) - westColumn(precision) + 1);
+    }
+
+    /**
+     * @return the column of an unwrapped longitude, counting on past the last column east
+     * of the antimeridian
+     */
+    static long column(double lon, int precision) {
+        if (lon > GeoHash.LONGITUDE_RANGE) {
+            return GeoHash.lonIndex(lon - 2 * GeoHash.LONGITUDE_RANGE, precision) + GeoHash.columns(precision);
+        }
+        return GeoHash.lonIndex(lon, precision);
+    }
+
+    /**
+     * @param bbox [minlat, minlon, maxlat, maxlon]
+     * @return true when any edge touches the closed box
+     */
+    boolean edgesIntersect(double[] bbox) {
+        return edgesIntersect(bbox, 0) || maxLon > GeoHash.LONGITUDE_RANGE && edgesIntersect(bbox, 360);
+    }
+
+    /**
+     * @param shift added to the longitudes of the box
+     */
+    private boolean edgesIntersect(double[] bbox, double shift) {
+        if (bbox[0] > maxLat || bbox[2] < minLat || bbox[1] + shift > maxLon || bbox[3] + shift < minLon) {
+            return false;
+        }
+        for (int b = band(bbox[0]), last = band(bbox[2]); b <= last; b++) {
+            for (int k = bandStarts[b], end = bandStarts[b + 1]; k < end; k++) {
+                int i = bandEdges[k];
+                int j = previous[i];
+                if (CompactCover.segmentIntersectsBox(lons[j] - shift, lats[j], lons[i] - shift, lats[i], bbox)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the longest geohash cell, up to maxPrecision characters, holding every vertex
+     * and every cell of maxPrecision whose closed rectangle touches the bounding box
+     */
+    long enclosingCell(int maxPrecision) {
+        if (maxLon > GeoHash.LONGITUDE_RANGE) {
+            return GeoHash.cell(0, 0);
+        }
+        // a point on a cell edge belongs to one side only, so step off the box on every side
+        // to take in the cells beyond edges it lies on
+        long southWest = GeoHash.encodeCell(Math.nextDown(minLat), Math.nextDown(minLon), maxPrecision);
+        long northEast = GeoHash.encodeCell(Math.nextUp(maxLat), Math.nextUp(maxLon), maxPrecision);
+        int common = Long.numberOfLeadingZeros(southWest ^ northEast) - 1;
+        int precision = Math.min(maxPrecision, common / GeoHash.BITS_PER_CHAR);
+        int shift = (maxPrecision - precision) * GeoHash.BITS_PER_CHAR;
+        return GeoHash.cell(GeoHash.cellBits(southWest) >>> shift, precision);
+    }
+
+    /**
+     * @return [minlat, minlon, maxlat, maxlon] of the vertices; maxlon is past 180 when the
+     * polygon crosses the antimeridian
+     */
+    public double[] boundingBox() {
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    /**
+     * @return latitude of vertex i
+     */
+    double latitude(int i) {
+        return lats[i];
+    }
+
+    /**
+     * @return longitude of vertex i
+     */
+    double longitude(int i) {
+        return lons[i];
+    }
+
+    /**
+     * @return the vertex before vertex i in its ring
+     */
+    int previous(int i) {
+        return previous[i];
+    }
+
+    /**
+     * @return number of vertices
+     */
+    public int size() {
+        return lats.length;
+    }
+
+}
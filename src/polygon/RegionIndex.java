@@ -0,0 +1,175 @@
+package polygon;
+
+import coords.Coordinates;
+import geohash.GeoHash;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Answers which of many polygons contain a point.
+ * <p>
+ * Every polygon is split by {@link CompactCover#partition} into cells entirely inside it
+ * and boundary cells of the maximum precision. The cells of all polygons go into one
+ * sorted array of cell ids, each pointing at the polygons that own it. A point is looked
+ * up by its ancestor cells, one binary search per precision present, so only the cells
+ * on its geohash prefix path are visited. Interior hits are answered directly; boundary
+ * hits fall back to a point in polygon test against that polygon alone.
+ * <p>
+ * Lookups read an immutable snapshot and take no locks. Rebuilding creates a new snapshot,
+ * possibly on another thread, and swaps it in when it is complete. Each rebuild is numbered
+ * when it is asked for, and a snapshot never replaces one from a later rebuild, so the
+ * regions last asked for win however the builds finish.
+ */
+public class RegionIndex {
+
+    private final int maxPrecision;
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicReference<Snapshot> snapshot =
+            new AtomicReference<>(new Snapshot(0, new HashMap<>(), new int[0], new PreparedPolygon[0]));
+
+    /**
+     * @param maxPrecision precision of the boundary cells; finer means fewer point in polygon
+     *                     fallbacks but a bigger index
+     */
+    public RegionIndex(int maxPrecision) {
+        this.maxPrecision = maxPrecision;
+    }
+
+    public RegionIndex(Map<Integer, Coordinates[]> regions, int maxPrecision) {
+        this(maxPrecision);
+        rebuild(regions);
+    }
+
+    /**
+     * Replace the indexed regions, keyed by id, on the calling thread.
+     */
+    public void rebuild(Map<Integer, Coordinates[]> regions) {
+        publish(build(generations.incrementAndGet(), regions));
+    }
+
+    /**
+     * Build a replacement index on the executor; lookups keep using the current one until
+     * the new one is complete.
+     */
+    public CompletableFuture<Void> rebuildAsync(Map<Integer, Coordinates[]> regions, Executor executor) {
+        long generation = generations.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> build(generation, regions), executor)
+                .thenAccept(this::publish);
+    }
+
+    /**
+     * swap in a snapshot unless one from a later rebuild is already in place
+     */
+    private void publish(Snapshot built) {
+        snapshot.accumulateAndGet(built, (current, next) -> next.generation > current.generation ? next : current);
+    }
+
+    /**
+     * @return ids of the regions containing the point, in no particular order
+     */
+    public int[] regionsContaining(double lat, double lon) {
+        return snapshot.get().regionsContaining(lat, lon);
+    }
+
+    /**
+     * @return number of regions indexed
+     */
+    public int size() {
+        return snapshot.get().ids.length;
+    }
+
+    /**
+     * @return number of distinct cells in the index
+     */
+    public int cellCount() {
+        return snapshot.get().keys.length;
+    }
+
+    private Snapshot build(long generation, Map<Integer, Coordinates[]> regions) {
+        Map<Long, CellList> owners = new HashMap<>();
+        int[] ids = new int[regions.size()];
+        PreparedPolygon[] polygons = new PreparedPolygon[regions.size()];
+        int index = 0;
+        for (Map.Entry<Integer, Coordinates[]> region : regions.entrySet()) {
+            int slot = index++;
+            ids[slot] = region.getKey();
+            polygons[slot] = new PreparedPolygon(region.getValue());
+            // owners hold slot << 1, with the low bit set for boundary cells
+            CompactCover.partition(polygons[slot], maxPrecision,
+                    cell -> owners.computeIfAbsent(cell, c -> new CellList(2)).accept((long) slot << 1),
+                    cell -> owners.computeIfAbsent(cell, c -> new CellList(2)).accept(((long) slot << 1) | 1));
+        }
+        return new Snapshot(generation, owners, ids, polygons);
+    }
+
+    private static final class Snapshot {
+        private final long generation;
+        private final long[] keys;
+        private final int[] offsets;
+        private final int[] owners;
+        private final int[] ids;
+        private final PreparedPolygon[] polygons;
+        /**
+         * bit p is set when some key has precision p
+         */
+        private final int precisions;
+
+        Snapshot(long generation, Map<Long, CellList> cells, int[] ids, PreparedPolygon[] polygons) {
+            this.generation = generation;
+            this.ids = ids;
+            this.polygons = polygons;
+            keys = new long[cells.size()];
+            int k = 0;
+            int total = 0;
+            for (Map.Entry<Long, CellList> entry : cells.entrySet()) {
+                keys[k++] = entry.getKey();
+                total += entry.getValue().size();
+            }
+            Arrays.sort(keys);
+            offsets = new int[keys.length + 1];
+            owners = new int[total];
+            int mask = 0;
+            for (int i = 0; i < keys.length; i++) {
+                CellList list = cells.get(keys[i]);
+                offsets[i + 1] = offsets[i] + list.size();
+                for (int j = 0; j < list.size(); j++) {
+                    owners[offsets[i] + j] = (int) list.get(j);
+                }
+                mask |= 1 << GeoHash.cellPrecision(keys[i]);
+            }
+            precisions = mask;
+        }
+
+        int[] regionsContaining(double lat, double lon) {
+            int[] found = new int[4];
+            int size = 0;
+            long leaf = GeoHash.cellBits(GeoHash.encodeCell(lat, lon, GeoHash.MAX_PRECISION));
+            for (int remaining = precisions; remaining != 0; remaining &= remaining - 1) {
+                int precision = Integer.numberOfTrailingZeros(remaining);
+                long ancestor = GeoHash.cell(leaf >>> ((GeoHash.MAX_PRECISION - precision) * GeoHash.BITS_PER_CHAR),
+                        precision);
+                int i = Arrays.binarySearch(keys, ancestor);
+                if (i < 0) {
+                    continue;
+                }
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    int slot = owners[k] >>> 1;
+                    if ((owners[k] & 1) == 0 || polygons[slot].contains(lat, lon)) {
+                        if (size == found.length) {
+                            found = Arrays.copyOf(found, size * 2);
+                        }
+                        found[size++] = ids[slot];
+                    }
+                }
+            }
+            return Arrays.copyOf(found, size);
+        }
+    }
+
+}
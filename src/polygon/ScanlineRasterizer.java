@@ -0,0 +1,105 @@
+package polygon;
+
+import coords.Coordinates;
+import geohash.GeoHash;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Finds the cells whose center is inside a polygon one geohash row at a time.
+ * <p>
+ * For each row the edge crossings at the latitude of the cell centers are computed once
+ * and sorted. A center is inside when an odd number of crossings lie east of it, so the
+ * interior is the spans [c0, c1), [c2, c3), ... and the cells in them are emitted without
+ * testing each one. Crossings use the same arithmetic as {@link PointInPolygon}, so the
+ * result is identical to testing every center.
+ */
+public class ScanlineRasterizer {
+
+    /**
+     * Emit the cell ids of the given precision whose center is inside the polygon,
+     * row by row from north to south and west to east within a row.
+     */
+    public static void rasterize(Coordinates[] polygon, int precision, LongConsumer cells) {
+        rasterize(new PreparedPolygon(polygon), precision, cells);
+    }
+
+    /**
+     * Emit the cell ids of the given precision whose center is inside the polygon,
+     * row by row from north to south and west to east within a row.
+     */
+    public static void rasterize(PreparedPolygon polygon, int precision, LongConsumer cells) {
+        double[] bounding = polygon.boundingBox();
+        rasterize(polygon, precision, GeoHash.latIndex(bounding[2], precision),
+                GeoHash.latIndex(bounding[0], precision), cells);
+    }
+
+    /**
+     * Rasterize only the rows from topRow down to bottomRow, inclusive.
+     */
+    static void rasterize(PreparedPolygon polygon, int precision, long topRow, long bottomRow, LongConsumer cells) {
+        double latStep = GeoHash.latStep(precision);
+        double lonStep = GeoHash.lonStep(precision);
+        long columnMask = GeoHash.columns(precision) - 1;
+        long westColumn = polygon.westColumn(precision);
+        long columnCount = polygon.columnCount(precision);
+
+        double[] crossings = new double[polygon.maxCrossings()];
+        long[] spans = new long[polygon.maxCrossings()];
+        for (long row = topRow; row >= bottomRow; row--) {
+            double y = -GeoHash.LATITUDE_RANGE + (row + 0.5) * latStep;
+            int count = spans(polygon, y, westColumn, columnCount, lonStep, crossings, spans);
+            for (int k = 0; k < count; k += 2) {
+                for (long i = spans[k]; i < spans[k + 1]; i++) {
+                    cells.accept(GeoHash.cellAt(row, (westColumn + i) & columnMask, precision));
+                }
+            }
+        }
+    }
+
+    /**
+     * The interior spans of the row whose centers are at latitude y, as [start, end) pairs
+     * of column offsets from westColumn, west to east.
+     *
+     * @param crossings scratch space of at least {@link PreparedPolygon#maxCrossings()}
+     * @param spans     receives the spans, at least {@link PreparedPolygon#maxCrossings()} long
+     * @return number of values written to spans
+     */
+    static int spans(PreparedPolygon polygon, double y, long westColumn, long columnCount, double lonStep,
+                     double[] crossings, long[] spans) {
+        int count = polygon.crossings(y, crossings);
+        Arrays.sort(crossings, 0, count);
+        int size = 0;
+        for (int k = 0; k + 1 < count; k += 2) {
+            long start = firstColumnAtOrEast(crossings[k], westColumn, columnCount, lonStep);
+            long end = firstColumnAtOrEast(crossings[k + 1], westColumn, columnCount, lonStep);
+            if (start < end) {
+                spans[size++] = start;
+                spans[size++] = end;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return offset from westColumn of the first column whose center is at or east of x,
+     * clamped to [0, columnCount]
+     */
+    static long firstColumnAtOrEast(double x, long westColumn, long columnCount, double lonStep) {
+        double estimate = Math.ceil((x + GeoHash.LONGITUDE_RANGE) / lonStep - 0.5) - westColumn;
+        long i = (long) Math.max(0, Math.min(columnCount, estimate));
+        while (i > 0 && center(westColumn + i - 1, lonStep) >= x) {
+            i--;
+        }
+        while (i < columnCount && center(westColumn + i, lonStep) < x) {
+            i++;
+        }
+        return i;
+    }
+
+    private static double center(long column, double lonStep) {
+        return -GeoHash.LONGITUDE_RANGE + (column + 0.5) * lonStep;
+    }
+
+}
@@ -0,0 +1,201 @@
+package polygon;
+
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The cells gained and lost when a polygon, typically a map viewport, moves.
+ * <p>
+ * Whether a row's centers are inside depends only on the edges that cross that row, so
+ * rows that no moved edge reaches keep exactly the same cells. Only the rows spanned by
+ * edges present in one polygon but not the other are rescanned, and within those rows the
+ * old and new interior spans are compared as column intervals, so the work is proportional
+ * to the changed rows and the cells that actually differ.
+ */
+public class ViewportDelta {
+
+    private final CellSet added;
+    private final CellSet removed;
+    private final CellSet cover;
+
+    private ViewportDelta(CellSet added, CellSet removed, CellSet cover) {
+        this.added = added;
+        this.removed = removed;
+        this.cover = cover;
+    }
+
+    /**
+     * @param previous      polygon the previous cover was computed for
+     * @param previousCover cover of previous at the given precision
+     * @param next          the moved polygon
+     */
+    public static ViewportDelta between(Coordinates[] previous, CellSet previousCover, Coordinates[] next,
+                                        int precision) {
+        PreparedPolygon before = new PreparedPolygon(previous);
+        PreparedPolygon after = new PreparedPolygon(next);
+        double latStep = GeoHash.latStep(precision);
+        double lonStep = GeoHash.lonStep(precision);
+        long columnMask = GeoHash.columns(precision) - 1;
+        Columns beforeColumns = new Columns(before, precision);
+        Columns afterColumns = new Columns(after, precision);
+
+        int scratch = Math.max(before.maxCrossings(), after.maxCrossings());
+        double[] crossings = new double[scratch];
+        long[] beforeSpans = new long[scratch];
+        long[] afterSpans = new long[scratch];
+        CellList added = new CellList();
+        CellList removed = new CellList();
+
+        long[] rows = changedRows(previous, next, precision);
+        for (int r = 0; r < rows.length; r += 2) {
+            for (long row = rows[r]; row <= rows[r + 1]; row++) {
+                double y = -GeoHash.LATITUDE_RANGE + (row + 0.5) * latStep;
+                int beforeCount = beforeColumns.spans(before, y, lonStep, crossings, beforeSpans);
+                int afterCount = afterColumns.spans(after, y, lonStep, crossings, afterSpans);
+                subtract(afterSpans, afterCount, beforeSpans, beforeCount, row, columnMask, precision, added);
+                subtract(beforeSpans, beforeCount, afterSpans, afterCount, row, columnMask, precision, removed);
+            }
+        }
+        CellSet addedCells = CellSet.of(added.toArray());
+        CellSet removedCells = CellSet.of(removed.toArray());
+        return new ViewportDelta(addedCells, removedCells, previousCover.difference(removedCells).union(addedCells));
+    }
+
+    /**
+     * cells gained by the move
+     */
+    public CellSet getAdded() {
+        return added;
+    }
+
+    /**
+     * cells lost by the move
+     */
+    public CellSet getRemoved() {
+        return removed;
+    }
+
+    /**
+     * the previous cover with the delta applied
+     */
+    public CellSet getCover() {
+        return cover;
+    }
+
+    /**
+     * Row ranges, as inclusive [first, last] pairs in ascending order, reached by an edge
+     * that is in only one of the polygons.
+     */
+    static long[] changedRows(Coordinates[] previous, Coordinates[] next, int precision) {
+        double[][] beforeEdges = edges(previous);
+        double[][] afterEdges = edges(next);
+        List<long[]> ranges = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < beforeEdges.length || j < afterEdges.length) {
+            int c = i == beforeEdges.length ? 1 : j == afterEdges.length ? -1 : compare(beforeEdges[i], afterEdges[j]);
+            if (c == 0) {
+                i++;
+                j++;
+                continue;
+            }
+            double[] edge = c < 0 ? beforeEdges[i++] : afterEdges[j++];
+            ranges.add(new long[]{GeoHash.latIndex(edge[0], precision), GeoHash.latIndex(edge[2], precision)});
+        }
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        long[] merged = new long[2 * ranges.size()];
+        int size = 0;
+        for (long[] range : ranges) {
+            if (size > 0 && range[0] <= merged[size - 1] + 1) {
+                merged[size - 1] = Math.max(merged[size - 1], range[1]);
+            } else {
+                merged[size++] = range[0];
+                merged[size++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * @return the edges as {lat1, lon1, lat2, lon2} with the southern end first, sorted
+     */
+    private static double[][] edges(Coordinates[] polygon) {
+        double[][] edges = new double[polygon.length][];
+        for (int i = 0, j = polygon.length - 1; i < polygon.length; j = i++) {
+            double[] a = {polygon[i].getLatitude(), polygon[i].getLongitude()};
+            double[] b = {polygon[j].getLatitude(), polygon[j].getLongitude()};
+            if (a[0] > b[0] || (a[0] == b[0] && a[1] > b[1])) {
+                double[] swap = a;
+                a = b;
+                b = swap;
+            }
+            edges[i] = new double[]{a[0], a[1], b[0], b[1]};
+        }
+        Arrays.sort(edges, ViewportDelta::compare);
+        return edges;
+    }
+
+    private static int compare(double[] a, double[] b) {
+        for (int k = 0; k < a.length; k++) {
+            int c = Double.compare(a[k], b[k]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * emit the columns of spans a that are not in spans b; both are absolute [start, end)
+     * pairs in ascending order
+     */
+    private static void subtract(long[] a, int aCount, long[] b, int bCount, long row, long columnMask,
+                                 int precision, CellList out) {
+        int j = 0;
+        for (int i = 0; i < aCount; i += 2) {
+            long start = a[i];
+            long end = a[i + 1];
+            while (j < bCount && b[j + 1] <= start) {
+                j += 2;
+            }
+            for (int k = j; start < end && k < bCount && b[k] < end; k += 2) {
+                for (long column = start; column < b[k]; column++) {
+                    out.accept(GeoHash.cellAt(row, column & columnMask, precision));
+                }
+                start = Math.max(start, b[k + 1]);
+            }
+            for (long column = start; column < end; column++) {
+                out.accept(GeoHash.cellAt(row, column & columnMask, precision));
+            }
+        }
+    }
+
+    /**
+     * the columns of a polygon's bounding box
+     */
+    private static class Columns {
+        private final long west;
+        private final long count;
+
+        Columns(PreparedPolygon polygon, int precision) {
+            west = polygon.westColumn(precision);
+            count = polygon.columnCount(precision);
+        }
+
+        /**
+         * spans of the row as absolute columns
+         */
+        int spans(PreparedPolygon polygon, double y, double lonStep, double[] crossings, long[] spans) {
+            int size = ScanlineRasterizer.spans(polygon, y, west, count, lonStep, crossings, spans);
+            for (int k = 0; k < size; k++) {
+                spans[k] += west;
+            }
+            return size;
+        }
+    }
+
+}
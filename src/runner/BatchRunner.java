@@ -0,0 +1,372 @@
+package runner;
+
+import geohash.CellSet;
+import geohash.GeoHash;
+import polygon.FillRule;
+import polygon.GeoHashesInPolygon;
+import polygon.PrecisionSelector;
+import polygon.PreparedPolygon;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Covers a catalog of polygons, one per input line, writing one line per polygon.
+ * <p>
+ * Input lines are GeoJSON or WKT as read by {@link PolygonFormat} and are read as they are
+ * needed, so the catalog is never held in memory. Longitudes are planar, as with
+ * {@link GeoHashesInPolygon#geohashesInPolygon(coords.Coordinates[], int)}, so rings that
+ * cross the antimeridian must be split at it. Covers are computed on a fixed pool of
+ * workers with at most a window of polygons read but not yet written; when the writer
+ * falls behind, reading waits. Output lines are tab separated: the polygon's id (its line
+ * number when it has none), the precision, and the geohashes separated by spaces, in the
+ * order of the input. Lines that can't be read or covered, including polygons estimated
+ * to have more cells at a fixed precision than the cell limit, are reported and written
+ * with precision 0 and the error message, so every input line has exactly one output line.
+ * <p>
+ * With a checkpoint file the number of lines written and the length of the output are
+ * recorded every few seconds, after the output is forced to disk. A run started again with
+ * the same checkpoint cuts the output back to the recorded length, skips the recorded
+ * lines and carries on, so a crash leaves neither gaps nor duplicates.
+ * <pre>
+ * java runner.BatchRunner input output [--precision N] [--cells N] [--workers N] [--checkpoint file]
+ * </pre>
+ */
+public class BatchRunner {
+
+    private static final long REPORT_NANOS = 5_000_000_000L;
+
+    /**
+     * most cells a polygon may have at a fixed precision unless told otherwise
+     */
+    public static final long DEFAULT_MAX_CELLS = 50_000_000;
+
+    private final int precision;
+    private final long maxCells;
+    private final int workers;
+    private final int window;
+    private PrintStream progress = System.err;
+
+    /**
+     * @param precision precision of every cover, or 0 to choose one per polygon by maxCells
+     * @param maxCells  cell budget each polygon's precision is chosen for when precision is 0,
+     *                  otherwise the most cells a polygon may be estimated to have, 0 for
+     *                  no limit
+     * @param workers   threads computing covers
+     */
+    public BatchRunner(int precision, long maxCells, int workers) {
+        if (precision < 0 || precision > GeoHash.MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between 0 and " + GeoHash.MAX_PRECISION);
+        }
+        if (precision == 0 && maxCells <= 0) {
+            throw new IllegalArgumentException("either a precision or a cell budget is needed");
+        }
+        this.precision = precision;
+        this.maxCells = maxCells;
+        this.workers = Math.max(1, workers);
+        this.window = 4 * this.workers;
+    }
+
+    /**
+     * where throughput is reported as the run goes, null for nowhere
+     */
+    public void setProgress(PrintStream progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Counts for a run, or for the part of it since it was resumed.
+     */
+    public static class Summary {
+        private final long skipped;
+        private final long polygons;
+        private final long failures;
+        private final long cells;
+        private final long nanos;
+
+        Summary(long skipped, long polygons, long failures, long cells, long nanos) {
+            this.skipped = skipped;
+            this.polygons = polygons;
+            this.failures = failures;
+            this.cells = cells;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return lines skipped because an earlier run had already written them
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getPolygons() {
+            return polygons;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getCells() {
+            return cells;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            return String.format(Locale.ROOT, "%d polygons (%d failed, %d skipped), %d cells in %.1f s: "
+                            + "%.1f polygons/s, %.0f cells/s",
+                    polygons, failures, skipped, cells, seconds, polygons / seconds, cells / seconds);
+        }
+    }
+
+    private static final class Result {
+        final String id;
+        final int precision;
+        final CellSet cover;
+        final String error;
+
+        Result(String id, int precision, CellSet cover, String error) {
+            this.id = id;
+            this.precision = precision;
+            this.cover = cover;
+            this.error = error;
+        }
+    }
+
+    /**
+     * @param checkpoint where progress is recorded and resumed from, or null to start over
+     */
+    public Summary run(Path input, Path output, Path checkpoint) throws IOException, InterruptedException {
+        long skip = 0, length = 0;
+        if (checkpoint != null && Files.exists(checkpoint) && Files.exists(output)) {
+            String[] recorded = new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim().split(" ");
+            skip = Long.parseLong(recorded[0]);
+            length = Long.parseLong(recorded[1]);
+        }
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.position(length);
+            return run(in, channel, skip, checkpoint);
+        }
+    }
+
+    /**
+     * Covers every line of in after the first skip, writing to out from its current position.
+     */
+    private Summary run(BufferedReader in, FileChannel out, long skip, Path checkpoint)
+            throws IOException, InterruptedException {
+        for (long i = 0; i < skip; i++) {
+            if (in.readLine() == null) {
+                throw new IllegalStateException("checkpoint is past the end of the input, at line " + i);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "batch-cover");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<CompletableFuture<Result>> pending = new ArrayBlockingQueue<>(window);
+        CompletableFuture<Summary> written = new CompletableFuture<>();
+        long start = System.nanoTime();
+        Thread writer = new Thread(() -> {
+            try {
+                written.complete(write(pending, out, skip, checkpoint, start));
+            } catch (Throwable e) {
+                written.completeExceptionally(e);
+            }
+        }, "batch-writer");
+        writer.start();
+
+        try {
+            long lineNumber = skip;
+            for (String line; (line = in.readLine()) != null && !written.isDone(); ) {
+                lineNumber++;
+                String text = line;
+                long number = lineNumber;
+                // waits while the window is full, holding reading back to the writer's pace
+                put(pending, CompletableFuture.supplyAsync(() -> cover(text, number), pool), written);
+            }
+            put(pending, CompletableFuture.completedFuture(null), written);
+            return written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } finally {
+            writer.interrupt();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * queue a result, unless the writer has stopped and nothing will take it
+     */
+    private static void put(BlockingQueue<CompletableFuture<Result>> pending, CompletableFuture<Result> result,
+                            CompletableFuture<Summary> written) throws InterruptedException {
+        while (!written.isDone() && !pending.offer(result, 100, TimeUnit.MILLISECONDS)) {
+            // the writer is behind
+        }
+    }
+
+    private Result cover(String line, long lineNumber) {
+        String id = Long.toString(lineNumber);
+        try {
+            if (line.trim().isEmpty()) {
+                throw new IllegalArgumentException("empty line");
+            }
+            PolygonFormat.Entry entry = PolygonFormat.parse(line);
+            if (entry.getId() != null) {
+                id = entry.getId();
+            }
+            PreparedPolygon polygon = new PreparedPolygon(entry.getPolygon(), FillRule.EVEN_ODD);
+            PrecisionSelector selector = new PrecisionSelector(polygon);
+            int p = precision > 0 ? precision : selector.forCellBudget(maxCells);
+            if (precision > 0 && maxCells > 0) {
+                long estimate = selector.estimateCells(p);
+                if (estimate > maxCells) {
+                    throw new IllegalArgumentException("about " + estimate + " cells at precision " + p
+                            + ", over the limit of " + maxCells);
+                }
+            }
+            return new Result(id, p, GeoHashesInPolygon.coverage(polygon, p), null);
+        } catch (RuntimeException | StackOverflowError e) {
+            // one bad line, such as deeply nested JSON, must not stop the run
+            return new Result(id, 0, null, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    /**
+     * writes results in the order they were read until the empty marker at the end
+     */
+    private Summary write(BlockingQueue<CompletableFuture<Result>> pending, FileChannel channel, long skip,
+                          Path checkpoint, long start) throws IOException, InterruptedException {
+        // not closed, the channel belongs to the caller
+        Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                StandardCharsets.UTF_8), 1 << 16);
+        long polygons = 0, failures = 0, cells = 0;
+        long lastReport = start;
+        for (Result result; (result = pending.take().join()) != null; ) {
+            out.write(clean(result.id));
+            out.write('\t');
+            out.write(Integer.toString(result.precision));
+            out.write('\t');
+            if (result.error != null) {
+                failures++;
+                out.write(clean(result.error));
+                if (progress != null) {
+                    progress.println("line " + (skip + polygons + 1) + ": " + result.error);
+                }
+            } else {
+                // straight off the ranges of the cover, never the whole cover at once
+                for (PrimitiveIterator.OfLong cover = result.cover.cells(result.precision); cover.hasNext(); ) {
+                    out.write(GeoHash.toGeoHash(cover.nextLong()));
+                    if (cover.hasNext()) {
+                        out.write(' ');
+                    }
+                    cells++;
+                }
+            }
+            out.write('\n');
+            polygons++;
+
+            long now = System.nanoTime();
+            if (now - lastReport >= REPORT_NANOS) {
+                lastReport = now;
+                if (checkpoint != null) {
+                    checkpoint(out, channel, skip + polygons, checkpoint);
+                }
+                if (progress != null) {
+                    progress.println(new Summary(skip, polygons, failures, cells, now - start));
+                }
+            }
+        }
+        out.flush();
+        if (checkpoint != null) {
+            checkpoint(out, channel, skip + polygons, checkpoint);
+        }
+        Summary summary = new Summary(skip, polygons, failures, cells, System.nanoTime() - start);
+        if (progress != null) {
+            progress.println(summary);
+        }
+        return summary;
+    }
+
+    /**
+     * records lines written and the output length, once both are safely on disk
+     */
+    private static void checkpoint(Writer out, FileChannel channel, long lines, Path checkpoint) throws IOException {
+        out.flush();
+        channel.force(false);
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temporary, (lines + " " + channel.position() + "\n").getBytes(StandardCharsets.US_ASCII));
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String clean(String text) {
+        return text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    public static void main(String[] a) throws IOException, InterruptedException {
+        if (a.length < 2) {
+            System.err.println("usage: BatchRunner input output [--precision N] [--cells N] [--workers N]"
+                    + " [--checkpoint file]");
+            System.exit(2);
+        }
+        int precision = 0;
+        long cells = 0;
+        int workers = Runtime.getRuntime().availableProcessors();
+        Path checkpoint = null;
+        for (int i = 2; i + 1 < a.length; i += 2) {
+            switch (a[i]) {
+                case "--precision":
+                    precision = Integer.parseInt(a[i + 1]);
+                    break;
+                case "--cells":
+                    cells = Long.parseLong(a[i + 1]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(a[i + 1]);
+                    break;
+                case "--checkpoint":
+                    checkpoint = Paths.get(a[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + a[i]);
+            }
+        }
+        if (cells == 0) {
+            cells = precision == 0 ? 100_000 : DEFAULT_MAX_CELLS;
+        }
+        new BatchRunner(precision, cells, workers).run(Paths.get(a[0]), Paths.get(a[1]), checkpoint);
+    }
+
+}
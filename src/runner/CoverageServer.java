@@ -0,0 +1,333 @@
+package runner;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+import geohash.LongestEnclosingGeoHash;
+import polygon.CoverageCache;
+import polygon.PrecisionSelector;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small embeddable HTTP front end for polygon covers, on the JDK's built in server.
+ * <p>
+ * {@code POST /cover?precision=6} (or {@code ?cells=50000} to pick the finest precision
+ * within a cell budget) with the polygon as whitespace or comma separated lat, lon pairs
+ * in the body answers with the geohashes of the cover, one per line, streamed as they are
+ * written. Each request runs on its own virtual thread when the JVM has them and on a
+ * pooled platform thread otherwise.
+ * <p>
+ * Identical requests in flight at the same time are computed once through a
+ * {@link CoverageCache}, which also keeps recent covers. Before any work a request is
+ * weighed by {@link PrecisionSelector#estimateCells(int)}: requests over the per request
+ * limit are refused with 413, small requests are always let through, and larger ones that
+ * have to compute their cover share a budget of cells in flight, waiting a bounded time for
+ * it before being turned away with 503, and keep their share until the cover is written.
+ * Requests answered from the cache or from a computation in flight take no share; those
+ * waiting on a request that is turned away try for a share of their own instead. A huge
+ * request can therefore only hold up other large requests, never the small ones.
+ */
+public class CoverageServer {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final int MAX_BODY_BYTES = 16 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final CoverageCache cache;
+    private final long smallRequestCells;
+    private final long maxRequestCells;
+    private final int maxCellsInFlight;
+    private final Semaphore cellsInFlight;
+    private final long admissionTimeoutMillis;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+
+    /**
+     * a server on the loopback interface with default limits
+     *
+     * @param port port to listen on, 0 for any free port
+     */
+    public CoverageServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), new CoverageCache(64 << 20),
+                10_000, 50_000_000, 20_000_000, 2_000);
+    }
+
+    /**
+     * @param address                where to listen
+     * @param cache                  covers shared, and coalesced, between requests
+     * @param smallRequestCells      estimated cells up to which a request skips admission
+     * @param maxRequestCells        estimated cells past which a request is refused
+     * @param maxCellsInFlight       estimated cells that larger requests may compute at once
+     * @param admissionTimeoutMillis how long a larger request waits for its share
+     */
+    public CoverageServer(InetSocketAddress address, CoverageCache cache, long smallRequestCells,
+                          long maxRequestCells, int maxCellsInFlight, long admissionTimeoutMillis)
+            throws IOException {
+        this.cache = cache;
+        this.smallRequestCells = smallRequestCells;
+        this.maxRequestCells = maxRequestCells;
+        this.maxCellsInFlight = maxCellsInFlight;
+        this.cellsInFlight = new Semaphore(maxCellsInFlight, true);
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.executor = requestExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/cover", this::cover);
+        server.setExecutor(executor);
+    }
+
+    public CoverageServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * stops accepting requests, giving those in progress up to delaySeconds to finish
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public CoverageCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return requests answered with a cover
+     */
+    public long getServed() {
+        return served.get();
+    }
+
+    /**
+     * @return requests turned away because the cells in flight stayed over budget
+     */
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /**
+     * @return requests refused for being larger than any single request may be
+     */
+    public long getRefused() {
+        return refused.get();
+    }
+
+    /**
+     * one virtual thread per request when the runtime has them (Java 21 and later), looked
+     * up reflectively so the server still runs on Java 8
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "coverage-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void cover(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, "only POST is supported");
+                return;
+            }
+            Coordinates[] polygon;
+            int precision;
+            try {
+                polygon = parsePolygon(exchange.getRequestBody());
+                precision = precision(exchange.getRequestURI(), polygon);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, e.getMessage());
+                return;
+            }
+
+            long estimate = new PrecisionSelector(polygon).estimateCells(precision);
+            if (estimate > maxRequestCells) {
+                refused.incrementAndGet();
+                send(exchange, 413, "about " + estimate + " cells at precision " + precision
+                        + ", over the limit of " + maxRequestCells);
+                return;
+            }
+            int permits = estimate <= smallRequestCells ? 0 : (int) Math.min(estimate, maxCellsInFlight);
+            // permits are taken only when this request computes the cover, and held until it is written
+            int[] held = new int[1];
+            try {
+                CellSet coverage;
+                try {
+                    coverage = cache.coverage(polygon, precision, () -> {
+                        if (permits > 0) {
+                            admit(permits);
+                            held[0] = permits;
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    throttled.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    send(exchange, 503, e.getMessage());
+                    return;
+                }
+                write(exchange, coverage, precision);
+            } finally {
+                cellsInFlight.release(held[0]);
+            }
+            served.incrementAndGet();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * waits a bounded time for permits from the cells in flight
+     *
+     * @throws RejectedExecutionException when they don't come in time
+     */
+    private void admit(int permits) {
+        try {
+            if (!cellsInFlight.tryAcquire(permits, admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("too many cells in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted");
+        }
+    }
+
+    private static void write(HttpExchange exchange, CellSet coverage, int precision) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.getResponseHeaders().set("X-Precision", Integer.toString(precision));
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.US_ASCII),
+                1 << 16);
+        for (PrimitiveIterator.OfLong cells = coverage.cells(precision); cells.hasNext(); ) {
+            out.write(GeoHash.toGeoHash(cells.nextLong()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private static void send(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * @return the precision asked for, the finest within the cell budget asked for, or two
+     * characters past the longest enclosing hash when neither is given
+     */
+    static int precision(URI uri, Coordinates[] polygon) {
+        Map<String, String> query = query(uri);
+        try {
+            if (query.containsKey("precision")) {
+                int precision = Integer.parseInt(query.get("precision"));
+                if (precision < 1 || precision > GeoHash.MAX_PRECISION) {
+                    throw new IllegalArgumentException("precision must be between 1 and " + GeoHash.MAX_PRECISION);
+                }
+                return precision;
+            }
+            if (query.containsKey("cells")) {
+                return new PrecisionSelector(polygon).forCellBudget(Long.parseLong(query.get("cells")));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: " + e.getMessage());
+        }
+        return Math.min(LongestEnclosingGeoHash.longestEnclosingHash(polygon).length() + 2, GeoHash.MAX_PRECISION);
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * reads lat, lon pairs separated by whitespace, commas or semicolons
+     */
+    static Coordinates[] parsePolygon(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) > 0; ) {
+            if (bytes.size() + read > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("polygon larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            bytes.write(buffer, 0, read);
+        }
+        String[] values = new String(bytes.toByteArray(), StandardCharsets.US_ASCII).trim().split("[\\s,;]+");
+        if (values.length < 6 || values.length % 2 != 0) {
+            throw new IllegalArgumentException("expected at least three lat, lon pairs");
+        }
+        Coordinates[] polygon = new Coordinates[values.length / 2];
+        try {
+            for (int i = 0; i < polygon.length; i++) {
+                double lat = Double.parseDouble(values[2 * i]);
+                double lon = Double.parseDouble(values[2 * i + 1]);
+                if (!(Math.abs(lat) <= GeoHash.LATITUDE_RANGE) || !(Math.abs(lon) <= GeoHash.LONGITUDE_RANGE)) {
+                    throw new IllegalArgumentException("vertex out of range: " + lat + ", " + lon);
+                }
+                polygon[i] = new Coordinates(lat, lon, 0, 0);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: " + e.getMessage());
+        }
+        return polygon;
+    }
+
+    public static void main(String[] a) throws IOException {
+        int port = a.length > 0 ? Integer.parseInt(a[0]) : DEFAULT_PORT;
+        CoverageServer server = new CoverageServer(port).start();
+        System.out.println("serving covers on http://" + server.getAddress().getHostString() + ":"
+                + server.getPort() + "/cover");
+    }
+
+}
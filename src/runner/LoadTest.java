@@ -0,0 +1,241 @@
+package runner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A closed loop load generator for {@link CoverageServer}. Each client sends a request,
+ * waits for the whole cover, and sends the next, for a fixed time. Requests are mostly small
+ * polygons drawn from a fixed pool, so the same polygon is often in flight twice, with the
+ * occasional large one mixed in. Latencies are reported as percentiles for each kind.
+ * <p>
+ * Without a url a server is started on a free loopback port for the duration of the run.
+ * <pre>
+ * java runner.LoadTest [clients] [seconds] [url]
+ * </pre>
+ */
+public class LoadTest {
+
+    /**
+     * a state sized triangle over colorado and wyoming
+     */
+    private static final String LARGE = "44.99588261816546 -109.248046875, 38.238180119798635 -109.1162109375, "
+            + "38.41055825094609 -102.83203125";
+
+    public static class Report {
+        private final long durationNanos;
+        private final long[] small;
+        private final long[] large;
+        private final TreeMap<Integer, Integer> statuses;
+        private final long cells;
+
+        Report(long durationNanos, long[] small, long[] large, TreeMap<Integer, Integer> statuses, long cells) {
+            this.durationNanos = durationNanos;
+            this.small = small;
+            this.large = large;
+            this.statuses = statuses;
+            this.cells = cells;
+            Arrays.sort(small);
+            Arrays.sort(large);
+        }
+
+        public long getRequests() {
+            return small.length + large.length;
+        }
+
+        /**
+         * @return requests answered with a status other than 200, or not answered at all (status 0)
+         */
+        public long getErrors() {
+            long errors = 0;
+            for (Map.Entry<Integer, Integer> status : statuses.entrySet()) {
+                if (status.getKey() != 200) {
+                    errors += status.getValue();
+                }
+            }
+            return errors;
+        }
+
+        public long getCells() {
+            return cells;
+        }
+
+        public double getRequestsPerSecond() {
+            return getRequests() * 1e9 / durationNanos;
+        }
+
+        /**
+         * @param fraction between 0 and 1, .99 for the 99th percentile
+         * @return latency, in nanoseconds, of small requests at that percentile
+         */
+        public long smallPercentile(double fraction) {
+            return percentile(small, fraction);
+        }
+
+        public long largePercentile(double fraction) {
+            return percentile(large, fraction);
+        }
+
+        private static long percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d requests, %.1f/s, %d cells, statuses %s%n"
+                            + "small: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n"
+                            + "large: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    getRequests(), getRequestsPerSecond(), cells, statuses,
+                    small.length, smallPercentile(.5) / 1e6, smallPercentile(.99) / 1e6, smallPercentile(1) / 1e6,
+                    large.length, largePercentile(.5) / 1e6, largePercentile(.99) / 1e6, largePercentile(1) / 1e6);
+        }
+    }
+
+    /**
+     * @param endpoint       the cover endpoint, for example http://127.0.0.1:8080/cover
+     * @param clients        concurrent connections
+     * @param durationMillis how long to keep sending
+     */
+    public static Report run(URI endpoint, int clients, long durationMillis) throws InterruptedException {
+        List<String> pool = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 32; i++) {
+            double lat = random.nextDouble() * 120 - 60;
+            double lon = random.nextDouble() * 340 - 170;
+            double size = .05 + random.nextDouble() * .2;
+            pool.add(lat + " " + lon + ", " + (lat + size) + " " + lon + ", " + lat + " " + (lon + size));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        long end = start + durationMillis * 1_000_000;
+        List<Future<long[][]>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Random choices = new Random(c);
+            results.add(executor.submit(() -> {
+                long[] small = new long[1024];
+                long[] large = new long[64];
+                int smallCount = 0, largeCount = 0;
+                long[] statuses = new long[600];
+                long cells = 0;
+                while (System.nanoTime() < end) {
+                    boolean isLarge = choices.nextInt(20) == 0;
+                    String body = isLarge ? LARGE : pool.get(choices.nextInt(pool.size()));
+                    URI uri = endpoint.resolve(endpoint.getPath() + (isLarge ? "?precision=6" : "?precision=7"));
+                    long began = System.nanoTime();
+                    int status = 0;
+                    try {
+                        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+                        connection.setRequestMethod("POST");
+                        connection.setDoOutput(true);
+                        try (OutputStream out = connection.getOutputStream()) {
+                            out.write(body.getBytes(StandardCharsets.US_ASCII));
+                        }
+                        status = connection.getResponseCode();
+                        InputStream in = status == 200 ? connection.getInputStream() : connection.getErrorStream();
+                        try (BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+                            while (reader.readLine() != null) {
+                                if (status == 200) {
+                                    cells++;
+                                }
+                            }
+                        }
+                    } catch (IOException e) {
+                        status = 0;
+                    }
+                    long latency = System.nanoTime() - began;
+                    statuses[status]++;
+                    if (isLarge) {
+                        if (largeCount == large.length) {
+                            large = Arrays.copyOf(large, 2 * largeCount);
+                        }
+                        large[largeCount++] = latency;
+                    } else {
+                        if (smallCount == small.length) {
+                            small = Arrays.copyOf(small, 2 * smallCount);
+                        }
+                        small[smallCount++] = latency;
+                    }
+                }
+                return new long[][]{Arrays.copyOf(small, smallCount), Arrays.copyOf(large, largeCount), statuses,
+                        {cells}};
+            }));
+        }
+
+        long[] small = new long[0], large = new long[0];
+        TreeMap<Integer, Integer> statuses = new TreeMap<>();
+        long cells = 0;
+        try {
+            for (Future<long[][]> result : results) {
+                long[][] client = result.get();
+                small = concat(small, client[0]);
+                large = concat(large, client[1]);
+                for (int status = 0; status < client[2].length; status++) {
+                    if (client[2][status] > 0) {
+                        statuses.merge(status, (int) client[2][status], Integer::sum);
+                    }
+                }
+                cells += client[3][0];
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return new Report(System.nanoTime() - start, small, large, statuses, cells);
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    public static void main(String[] a) throws IOException, InterruptedException {
+        int clients = a.length > 0 ? Integer.parseInt(a[0]) : 16;
+        int seconds = a.length > 1 ? Integer.parseInt(a[1]) : 10;
+        CoverageServer server = null;
+        URI endpoint;
+        if (a.length > 2) {
+            endpoint = URI.create(a[2]);
+        } else {
+            server = new CoverageServer(0).start();
+            endpoint = URI.create("http://127.0.0.1:" + server.getPort() + "/cover");
+        }
+        try {
+            System.out.println(run(endpoint, clients, seconds * 1000L));
+            if (server != null) {
+                System.out.println("coalesced " + server.getCache().coalesced() + ", cache hits "
+                        + server.getCache().hits() + ", misses " + server.getCache().misses()
+                        + ", throttled " + server.getThrottled());
+            }
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,427 @@
+package runner;
+
+import coords.MultiPolygon;
+import coords.PackedRing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads polygons one per line, as GeoJSON or as WKT.
+ * <p>
+ * A GeoJSON line is a Polygon or MultiPolygon geometry, or a Feature holding one, whose id
+ * is the feature's {@code id} or else its {@code id} property. A WKT line is a POLYGON or
+ * MULTIPOLYGON, optionally preceded by an id and a tab. Both give coordinates as longitude
+ * then latitude; the first ring of each polygon is its outer ring and the rest are holes.
+ * Malformed input is reported with an {@link IllegalArgumentException}.
+ */
+public class PolygonFormat {
+
+    /**
+     * A polygon read from a line, with its id or null when the line has none.
+     */
+    public static class Entry {
+        private final String id;
+        private final MultiPolygon polygon;
+
+        Entry(String id, MultiPolygon polygon) {
+            this.id = id;
+            this.polygon = polygon;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public MultiPolygon getPolygon() {
+            return polygon;
+        }
+    }
+
+    public static Entry parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.startsWith("{")) {
+            return parseGeoJson(trimmed);
+        }
+        int tab = trimmed.indexOf('\t');
+        if (tab >= 0) {
+            return new Entry(trimmed.substring(0, tab).trim(), parseWkt(trimmed.substring(tab + 1)));
+        }
+        return new Entry(null, parseWkt(trimmed));
+    }
+
+    public static Entry parseGeoJson(String json) {
+        Json parser = new Json(json);
+        Object value = parser.value();
+        parser.end();
+        Map<?, ?> object = asObject(value, "GeoJSON");
+        String id = null;
+        if ("Feature".equals(object.get("type"))) {
+            Object featureId = object.get("id");
+            if (featureId == null && object.get("properties") instanceof Map) {
+                featureId = ((Map<?, ?>) object.get("properties")).get("id");
+            }
+            id = featureId == null ? null : idString(featureId);
+            object = asObject(object.get("geometry"), "geometry");
+        }
+        Object type = object.get("type");
+        Object coordinates = object.get("coordinates");
+        if ("Polygon".equals(type)) {
+            return new Entry(id, add(null, asList(coordinates, "polygon")));
+        }
+        if ("MultiPolygon".equals(type)) {
+            MultiPolygon polygon = null;
+            for (Object rings : asList(coordinates, "multipolygon")) {
+                polygon = add(polygon, asList(rings, "polygon"));
+            }
+            if (polygon == null) {
+                throw new IllegalArgumentException("empty multipolygon");
+            }
+            return new Entry(id, polygon);
+        }
+        throw new IllegalArgumentException("not a Polygon or MultiPolygon: " + type);
+    }
+
+    private static String idString(Object id) {
+        if (id instanceof Double && (Double) id == Math.rint((Double) id) && Math.abs((Double) id) < 1e15) {
+            return Long.toString(((Double) id).longValue());
+        }
+        return id.toString();
+    }
+
+    /**
+     * @param rings lists of [lon, lat] positions, outer ring first
+     */
+    private static MultiPolygon add(MultiPolygon polygon, List<?> rings) {
+        if (rings.isEmpty()) {
+            throw new IllegalArgumentException("polygon without rings");
+        }
+        PackedRing[] holes = new PackedRing[rings.size() - 1];
+        for (int h = 0; h < holes.length; h++) {
+            holes[h] = ring(asList(rings.get(h + 1), "ring"));
+        }
+        PackedRing outer = ring(asList(rings.get(0), "ring"));
+        return polygon == null ? MultiPolygon.of(outer, holes) : polygon.and(outer, holes);
+    }
+
+    private static PackedRing ring(List<?> positions) {
+        double[] lats = new double[positions.size()];
+        double[] lons = new double[positions.size()];
+        for (int i = 0; i < lats.length; i++) {
+            List<?> position = asList(positions.get(i), "position");
+            if (position.size() < 2 || !(position.get(0) instanceof Double) || !(position.get(1) instanceof Double)) {
+                throw new IllegalArgumentException("bad position " + position);
+            }
+            lons[i] = (Double) position.get(0);
+            lats[i] = (Double) position.get(1);
+        }
+        return ring(lats, lons);
+    }
+
+    private static PackedRing ring(double[] lats, double[] lons) {
+        if (lats.length < 3) {
+            throw new IllegalArgumentException("ring with fewer than three positions");
+        }
+        for (int i = 0; i < lats.length; i++) {
+            if (!(Math.abs(lats[i]) <= 90) || !(Math.abs(lons[i]) <= 180)) {
+                throw new IllegalArgumentException("position out of range: " + lons[i] + " " + lats[i]);
+            }
+        }
+        return PackedRing.of(lats, lons);
+    }
+
+    private static Map<?, ?> asObject(Object value, String what) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("expected an object for " + what);
+        }
+        return (Map<?, ?>) value;
+    }
+
+    private static List<?> asList(Object value, String what) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("expected an array for " + what);
+        }
+        return (List<?>) value;
+    }
+
+    public static MultiPolygon parseWkt(String wkt) {
+        String text = wkt.trim();
+        int open = text.indexOf('(');
+        if (open < 0) {
+            throw new IllegalArgumentException("not a polygon: " + abbreviate(text));
+        }
+        String type = text.substring(0, open).trim().toUpperCase(Locale.ROOT);
+        // dimensions such as POLYGON Z are read as x y with the rest ignored
+        if (type.endsWith(" Z") || type.endsWith(" M")) {
+            type = type.substring(0, type.length() - 2).trim();
+        } else if (type.endsWith(" ZM")) {
+            type = type.substring(0, type.length() - 3).trim();
+        }
+        Wkt parser = new Wkt(text, open);
+        MultiPolygon polygon = null;
+        if (type.equals("POLYGON")) {
+            polygon = add(null, parser.polygon());
+        } else if (type.equals("MULTIPOLYGON")) {
+            parser.expect('(');
+            do {
+                polygon = add(polygon, parser.polygon());
+            } while (parser.comma());
+            parser.expect(')');
+        } else {
+            throw new IllegalArgumentException("not a POLYGON or MULTIPOLYGON: " + abbreviate(text));
+        }
+        parser.end();
+        return polygon;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() > 40 ? text.substring(0, 40) + "..." : text;
+    }
+
+    /**
+     * nested parentheses of coordinates, read into the same lists of [lon, lat] as GeoJSON
+     */
+    private static final class Wkt {
+        private final String text;
+        private int at;
+
+        Wkt(String text, int at) {
+            this.text = text;
+            this.at = at;
+        }
+
+        List<Object> polygon() {
+            List<Object> rings = new ArrayList<>();
+            expect('(');
+            do {
+                rings.add(ring());
+            } while (comma());
+            expect(')');
+            return rings;
+        }
+
+        private List<Object> ring() {
+            List<Object> positions = new ArrayList<>();
+            expect('(');
+            do {
+                List<Object> position = new ArrayList<>();
+                position.add(number());
+                position.add(number());
+                while (peek() != ',' && peek() != ')') {
+                    number();
+                }
+                positions.add(position);
+            } while (comma());
+            expect(')');
+            return positions;
+        }
+
+        private double number() {
+            skipSpace();
+            int start = at;
+            while (at < text.length() && "+-.0123456789eE".indexOf(text.charAt(at)) >= 0) {
+                at++;
+            }
+            try {
+                return Double.parseDouble(text.substring(start, at));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("expected a number at " + start);
+            }
+        }
+
+        boolean comma() {
+            if (peek() == ',') {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at " + at);
+            }
+            at++;
+        }
+
+        void end() {
+            if (peek() != 0) {
+                throw new IllegalArgumentException("unexpected text at " + at);
+            }
+        }
+
+        private char peek() {
+            skipSpace();
+            return at < text.length() ? text.charAt(at) : 0;
+        }
+
+        private void skipSpace() {
+            while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+        }
+    }
+
+    /**
+     * just enough JSON: objects become maps, arrays lists, numbers doubles
+     */
+    private static final class Json {
+        private final String text;
+        private int at;
+
+        Json(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            char c = peek();
+            switch (c) {
+                case '{':
+                    return object();
+                case '[':
+                    return array();
+                case '"':
+                    return string();
+                case 't':
+                    return literal("true", Boolean.TRUE);
+                case 'f':
+                    return literal("false", Boolean.FALSE);
+                case 'n':
+                    return literal("null", null);
+                default:
+                    return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            at++;
+            if (peek() == '}') {
+                at++;
+                return object;
+            }
+            do {
+                if (peek() != '"') {
+                    throw new IllegalArgumentException("expected a key at " + at);
+                }
+                String key = string();
+                expect(':');
+                object.put(key, value());
+            } while (comma());
+            expect('}');
+            return object;
+        }
+
+        private List<Object> array() {
+            List<Object> array = new ArrayList<>();
+            at++;
+            if (peek() == ']') {
+                at++;
+                return array;
+            }
+            do {
+                array.add(value());
+            } while (comma());
+            expect(']');
+            return array;
+        }
+
+        private String string() {
+            StringBuilder string = new StringBuilder();
+            at++;
+            while (at < text.length()) {
+                char c = text.charAt(at++);
+                if (c == '"') {
+                    return string.toString();
+                }
+                if (c != '\\') {
+                    string.append(c);
+                    continue;
+                }
+                if (at >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(at++);
+                switch (escaped) {
+                    case 'b':
+                        string.append('\b');
+                        break;
+                    case 'f':
+                        string.append('\f');
+                        break;
+                    case 'n':
+                        string.append('\n');
+                        break;
+                    case 'r':
+                        string.append('\r');
+                        break;
+                    case 't':
+                        string.append('\t');
+                        break;
+                    case 'u':
+                        if (at + 4 > text.length()) {
+                            throw new IllegalArgumentException("bad escape at " + at);
+                        }
+                        string.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                        at += 4;
+                        break;
+                    default:
+                        string.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("unterminated string");
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, at)) {
+                throw new IllegalArgumentException("unexpected text at " + at);
+            }
+            at += word.length();
+            return value;
+        }
+
+        private Double number() {
+            int start = at;
+            while (at < text.length() && "+-.0123456789eE".indexOf(text.charAt(at)) >= 0) {
+                at++;
+            }
+            try {
+                return Double.valueOf(text.substring(start, at));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("unexpected text at " + start);
+            }
+        }
+
+        private boolean comma() {
+            if (peek() == ',') {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at " + at);
+            }
+            at++;
+        }
+
+        void end() {
+            if (peek() != 0) {
+                throw new IllegalArgumentException("unexpected text at " + at);
+            }
+        }
+
+        private char peek() {
+            while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+            return at < text.length() ? text.charAt(at) : 0;
+        }
+    }
+
+}
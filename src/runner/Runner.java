@@ -4,12 +4,26 @@ package runner;
 import coords.Coordinates;
 import geohash.LongestEnclosingGeoHash;
 import polygon.GeoHashesInPolygon;
+import polygon.PrecisionSelector;
 
+import java.util.Arrays;
 import java.util.Set;
 
 public class Runner {
 
-    public static void main(String[] a) {
+    public static void main(String[] a) throws Exception {
+        if (a.length > 0 && a[0].equals("serve")) {
+            CoverageServer.main(Arrays.copyOfRange(a, 1, a.length));
+            return;
+        }
+        if (a.length > 0 && a[0].equals("batch")) {
+            BatchRunner.main(Arrays.copyOfRange(a, 1, a.length));
+            return;
+        }
+        if (a.length > 0 && a[0].equals("loadtest")) {
+            LoadTest.main(Arrays.copyOfRange(a, 1, a.length));
+            return;
+        }
 
         //sample polygon, representing a triangle over northern colorado and some of wyoming
         Coordinates[] polygon = {
@@ -18,8 +32,14 @@ public class Runner {
                 new Coordinates(38.41055825094609f, -102.83203125f)
         };
 
-        int longestEnclosingHashLength = LongestEnclosingGeoHash.longestEnclosingHash(polygon).length();
-        int precision = longestEnclosingHashLength + 2;
+        int precision;
+        if (a.length > 0) {
+            //an optional cell budget picks the finest precision that stays within it
+            precision = new PrecisionSelector(polygon).forCellBudget(Long.parseLong(a[0]));
+        } else {
+            int longestEnclosingHashLength = LongestEnclosingGeoHash.longestEnclosingHash(polygon).length();
+            precision = longestEnclosingHashLength + 2;
+        }
         Set<String> hashes = GeoHashesInPolygon.geohashesInPolygon(polygon, precision);
         System.out.println(hashes);
         System.out.println(hashes.size());
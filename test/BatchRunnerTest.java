@@ -0,0 +1,225 @@
+import coords.Coordinates;
+import coords.MultiPolygon;
+import coords.PackedRing;
+import org.junit.Test;
+import polygon.FillRule;
+import polygon.GeoHashesInPolygon;
+import runner.BatchRunner;
+import runner.PolygonFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class BatchRunnerTest {
+
+    private static String wkt(Coordinates[] polygon) {
+        StringBuilder wkt = new StringBuilder("POLYGON ((");
+        for (Coordinates vertex : polygon) {
+            wkt.append(vertex.getLongitude()).append(' ').append(vertex.getLatitude()).append(", ");
+        }
+        return wkt.append(polygon[0].getLongitude()).append(' ').append(polygon[0].getLatitude()).append("))")
+                .toString();
+    }
+
+    private static Set<String> cells(String outputLine) {
+        String[] fields = outputLine.split("\t", -1);
+        return fields[2].isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(fields[2].split(" ")));
+    }
+
+    @Test
+    public void testFormats() {
+        PackedRing outer = PackedRing.of(38.1, -109.3, 38.1, -101.7, 41.9, -101.7, 41.9, -109.3);
+        PackedRing hole = PackedRing.of(39.2, -107.4, 40.8, -107.4, 40.8, -104.6, 39.2, -104.6);
+        Set<String> expected = GeoHashesInPolygon.geohashesInPolygon(MultiPolygon.of(outer, hole), 4, FillRule.EVEN_ODD);
+        String[] lines = {
+                "{\"type\":\"Feature\",\"id\":7,\"properties\":{\"name\":\"a \\\"ring\\\"\"},\"geometry\":"
+                        + "{\"type\":\"Polygon\",\"coordinates\":[[[-109.3,38.1],[-101.7,38.1],[-101.7,41.9],"
+                        + "[-109.3,41.9],[-109.3,38.1]],[[-107.4,39.2],[-107.4,40.8],[-104.6,40.8],[-104.6,39.2]]]}}",
+                "{\"type\": \"MultiPolygon\", \"coordinates\": [[[[-109.3, 38.1], [-101.7, 38.1], [-101.7, 41.9],"
+                        + " [-109.3, 41.9]], [[-107.4, 39.2], [-107.4, 40.8], [-104.6, 40.8], [-104.6, 39.2]]]]}",
+                "colorado\tPOLYGON ((-109.3 38.1, -101.7 38.1, -101.7 41.9, -109.3 41.9, -109.3 38.1),"
+                        + " (-107.4 39.2, -107.4 40.8, -104.6 40.8, -104.6 39.2, -107.4 39.2))",
+                "MULTIPOLYGON Z (((-109.3 38.1 0, -101.7 38.1 0, -101.7 41.9 0, -109.3 41.9 0)),"
+                        + " ((-107.4 39.2 0, -107.4 40.8 0, -104.6 40.8 0, -104.6 39.2 0)))"
+        };
+        String[] ids = {"7", null, "colorado", null};
+        for (int i = 0; i < lines.length; i++) {
+            PolygonFormat.Entry entry = PolygonFormat.parse(lines[i]);
+            assertEquals(ids[i], entry.getId());
+            assertEquals(expected, GeoHashesInPolygon.geohashesInPolygon(entry.getPolygon(), 4, FillRule.EVEN_ODD));
+        }
+        for (String bad : new String[]{"POLYGON EMPTY", "POLYGON ((1 2, 3 4))", "POLYGON ((1 2, 3 4, 5 x))",
+                "{\"type\":\"Point\",\"coordinates\":[1,2]}", "{\"type\":\"Polygon\",\"coordinates\":[[[1,2],[3,4]",
+                "POLYGON ((0 95, 1 95, 1 96))"}) {
+            try {
+                PolygonFormat.parse(bad);
+                throw new AssertionError("parsed " + bad);
+            } catch (IllegalArgumentException expectedFailure) {
+                // malformed lines are rejected
+            }
+        }
+    }
+
+    @Test
+    public void testWktKeywordsIgnoreLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(2, PolygonFormat.parseWkt("multipolygon (((1 1, 2 1, 2 2)), ((5 5, 6 5, 6 6)))").size());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testCoversInInputOrder() throws IOException, InterruptedException {
+        Random random = new Random(41);
+        List<Coordinates[]> polygons = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(20), false);
+            polygons.add(polygon);
+            lines.add(i % 50 == 7 ? "not a polygon" : wkt(polygon));
+        }
+        Path input = Files.createTempFile("polygons", ".wkt");
+        Path output = Files.createTempFile("covers", ".tsv");
+        try {
+            Files.write(input, lines, StandardCharsets.UTF_8);
+            BatchRunner runner = new BatchRunner(4, 0, 3);
+            runner.setProgress(null);
+            BatchRunner.Summary summary = runner.run(input, output, null);
+            assertEquals(200, summary.getPolygons());
+            assertEquals(4, summary.getFailures());
+
+            List<String> written = Files.readAllLines(output, StandardCharsets.UTF_8);
+            assertEquals(200, written.size());
+            long cells = 0;
+            for (int i = 0; i < 200; i++) {
+                String[] fields = written.get(i).split("\t", -1);
+                assertEquals(Integer.toString(i + 1), fields[0]);
+                if (i % 50 == 7) {
+                    assertEquals("0", fields[1]);
+                    continue;
+                }
+                assertEquals("4", fields[1]);
+                Set<String> expected = GeoHashesInPolygon.geohashesInPolygon(polygons.get(i), 4);
+                assertEquals(expected, cells(written.get(i)));
+                cells += expected.size();
+            }
+            assertEquals(cells, summary.getCells());
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testWidePolygonsArePlanar() throws IOException, InterruptedException {
+        Coordinates[] wide = {new Coordinates(-10, -179, 0, 0), new Coordinates(-10, 179, 0, 0),
+                new Coordinates(10, 179, 0, 0), new Coordinates(10, -179, 0, 0)};
+        Path input = Files.createTempFile("polygons", ".wkt");
+        Path output = Files.createTempFile("covers", ".tsv");
+        try {
+            Files.write(input, Arrays.asList(wkt(wide)), StandardCharsets.UTF_8);
+            BatchRunner runner = new BatchRunner(3, 0, 1);
+            runner.setProgress(null);
+            runner.run(input, output, null);
+            Set<String> expected = GeoHashesInPolygon.geohashesInPolygon(wide, 3);
+            assertTrue(expected.size() > 100);
+            assertEquals(expected, cells(Files.readAllLines(output, StandardCharsets.UTF_8).get(0)));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testBadLinesDoNotStopTheRun() throws IOException, InterruptedException {
+        StringBuilder nested = new StringBuilder("{\"type\":");
+        for (int i = 0; i < 200_000; i++) {
+            nested.append('[');
+        }
+        List<String> lines = Arrays.asList(wkt(ScanlineRasterizerTest.NO_CO), nested.toString(),
+                "POLYGON ((-179 -80, 179 -80, 179 80, -179 80, -179 -80))", wkt(ScanlineRasterizerTest.WEIRD));
+        Path input = Files.createTempFile("polygons", ".wkt");
+        Path output = Files.createTempFile("covers", ".tsv");
+        try {
+            Files.write(input, lines, StandardCharsets.UTF_8);
+            // at a fixed precision the cell budget is a limit on each polygon
+            BatchRunner runner = new BatchRunner(4, 5_000, 2);
+            runner.setProgress(null);
+            BatchRunner.Summary summary = runner.run(input, output, null);
+            assertEquals(4, summary.getPolygons());
+            assertEquals(2, summary.getFailures());
+
+            List<String> written = Files.readAllLines(output, StandardCharsets.UTF_8);
+            assertEquals(4, written.size());
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.NO_CO, 4), cells(written.get(0)));
+            assertTrue(written.get(1).startsWith("2\t0\t"));
+            assertTrue(written.get(2).startsWith("3\t0\tabout "));
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.WEIRD, 4), cells(written.get(3)));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws IOException, InterruptedException {
+        Random random = new Random(43);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            lines.add(wkt(ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(10), false)));
+        }
+        Path input = Files.createTempFile("polygons", ".wkt");
+        Path output = Files.createTempFile("covers", ".tsv");
+        Path checkpoint = Files.createTempFile("covers", ".checkpoint");
+        try {
+            Files.write(input, lines, StandardCharsets.UTF_8);
+            BatchRunner runner = new BatchRunner(0, 2_000, 2);
+            runner.setProgress(null);
+            Files.delete(checkpoint);
+            runner.run(input, output, checkpoint);
+            byte[] complete = Files.readAllBytes(output);
+            List<String> written = Files.readAllLines(output, StandardCharsets.UTF_8);
+            for (String line : written) {
+                assertTrue(cells(line).size() <= 2_000);
+            }
+
+            // a crash after 25 lines were recorded, with part of the next line written
+            int length = 0;
+            for (int i = 0; i < 25; i++) {
+                length += written.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+            byte[] partial = Arrays.copyOf(complete, length + 17);
+            Files.write(output, partial);
+            Files.write(checkpoint, ("25 " + length + "\n").getBytes(StandardCharsets.US_ASCII));
+
+            BatchRunner.Summary summary = runner.run(input, output, checkpoint);
+            assertEquals(25, summary.getSkipped());
+            assertEquals(35, summary.getPolygons());
+            assertEquals(new String(complete, StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            assertEquals("60 " + complete.length,
+                    new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim());
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+import polygon.BufferedCover;
+import polygon.GeoHashesInPolygon;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class BufferedCoverTest {
+
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    /**
+     * the cells within k neighbor steps of the cover, stepping out from the cells added last
+     */
+    private static Set<String> dilate(Set<String> cover, int k) {
+        Set<String> result = new HashSet<>(cover);
+        Set<String> frontier = cover;
+        for (int ring = 0; ring < k; ring++) {
+            Set<String> next = new HashSet<>();
+            for (String hash : frontier) {
+                for (int[] direction : DIRECTIONS) {
+                    String neighbor = GeoHashUtils.neighbor(hash, direction);
+                    if (result.add(neighbor)) {
+                        next.add(neighbor);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * the cells of the cover with no cell outside it within k neighbor steps
+     */
+    private static Set<String> erode(Set<String> cover, int k) {
+        Set<String> outside = dilate(cover, 1);
+        outside.removeAll(cover);
+        Set<String> result = new HashSet<>(cover);
+        result.removeAll(dilate(outside, k));
+        return result;
+    }
+
+    private static void assertBuffers(Coordinates[] polygon, int precision, int k) {
+        Set<String> cover = GeoHashesInPolygon.geohashesInPolygon(polygon, precision);
+        Set<String> expected = k >= 0 ? dilate(cover, k) : erode(cover, -k);
+        assertEquals(expected, BufferedCover.geohashes(polygon, precision, k));
+        assertEquals(expected, BufferedCover.buffer(CellSet.fromGeohashes(cover), precision, k).toGeohashes(precision));
+    }
+
+    @Test
+    public void testMatchesNeighborSteps() {
+        for (Coordinates[] polygon : new Coordinates[][]{ScanlineRasterizerTest.WYOMING_CO,
+                ScanlineRasterizerTest.WEIRD, ScanlineRasterizerTest.NO_CO}) {
+            for (int k = -3; k <= 3; k++) {
+                assertBuffers(polygon, 4, k);
+            }
+        }
+        Random random = new Random(31);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(20), i % 3 == 0);
+            assertBuffers(polygon, 1 + random.nextInt(4), random.nextInt(9) - 4);
+        }
+    }
+
+    @Test
+    public void testWidenedPastSixtyFourColumns() {
+        // several words per row, grown and shrunk by more than a word
+        assertBuffers(ScanlineRasterizerTest.NO_CO, 5, 70);
+        assertBuffers(ScanlineRasterizerTest.WYOMING_CO, 5, -70);
+        assertBuffers(ScanlineRasterizerTest.WYOMING_CO, 5, -65);
+    }
+
+    @Test
+    public void testWrapsAndStopsAtPoles() {
+        Coordinates[] antimeridian = {
+                new Coordinates(-10.0, 175.5, 0, 0),
+                new Coordinates(10.0, 175.5, 0, 0),
+                new Coordinates(10.0, 179.9, 0, 0),
+                new Coordinates(-10.0, 179.9, 0, 0)
+        };
+        Coordinates[] polar = {
+                new Coordinates(80.0, -170.0, 0, 0),
+                new Coordinates(89.9, -170.0, 0, 0),
+                new Coordinates(89.9, 170.0, 0, 0),
+                new Coordinates(80.0, 170.0, 0, 0)
+        };
+        for (int k = -2; k <= 6; k++) {
+            assertBuffers(antimeridian, 3, k);
+            assertBuffers(polar, 2, k);
+        }
+        // the whole world stays whole when shrunk
+        CellSet world = CellSet.of(GeoHash.cell(0, 0));
+        assertEquals(world, BufferedCover.buffer(world, 2, -3));
+        assertEquals(CellSet.empty(), BufferedCover.buffer(CellSet.empty(), 2, 3));
+    }
+
+    @Test
+    public void testMarginsAroundTheWorld() {
+        // at precision 2 there are 32 columns, so from 16 on every row is all or nothing
+        for (int k : new int[]{15, 16, 17, 40, -15, -16, -17}) {
+            assertBuffers(ScanlineRasterizerTest.NO_CO, 2, k);
+            assertBuffers(ScanlineRasterizerTest.WYOMING_CO, 2, k);
+        }
+        // a band around the world up to the north pole, shrunk by more than half its width,
+        // keeps the rows far enough from its southern edge
+        CellSet band = CellSet.empty();
+        for (long row = 5; row < GeoHash.rows(2); row++) {
+            for (long column = 0; column < GeoHash.columns(2); column++) {
+                band = band.union(CellSet.of(GeoHash.cellAt(row, column, 2)));
+            }
+        }
+        Set<String> kept = BufferedCover.buffer(band, 2, -16).toGeohashes(2);
+        assertEquals(erode(band.toGeohashes(2), 16), kept);
+        assertEquals(11 * GeoHash.columns(2), kept.size());
+        // any margin, however large, costs no more than one that reaches around the world
+        CellSet world = CellSet.of(GeoHash.cell(0, 0));
+        CellSet cover = CellSet.of(GeoHash.toCell("9"));
+        assertEquals(world, BufferedCover.buffer(cover, 1, Integer.MAX_VALUE));
+        assertEquals(world, BufferedCover.buffer(world, 1, -Integer.MAX_VALUE));
+        assertEquals(CellSet.empty(), BufferedCover.buffer(cover, 1, -Integer.MAX_VALUE));
+        assertEquals(GeoHash.columns(4) * GeoHash.rows(4),
+                BufferedCover.buffer(ScanlineRasterizerTest.NO_CO, 4, Integer.MAX_VALUE).cellCount(4));
+    }
+
+}
@@ -0,0 +1,127 @@
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class CellSetTest {
+
+    private static long cell(String hash) {
+        return GeoHash.toCell(hash);
+    }
+
+    @Test
+    public void testRunsCollapse() {
+        long[] cells = new long[32];
+        for (int i = 0; i < 32; i++) {
+            cells[i] = cell("9x" + GeoHash.charMap[i]);
+        }
+        CellSet set = CellSet.of(cells);
+        assertEquals(1, set.rangeCount());
+        assertEquals(1, set.toCells().length);
+        assertEquals(cell("9x"), set.toCells()[0]);
+        assertEquals(32, set.cellCount(3));
+        assertTrue(set.contains("9x"));
+        assertTrue(set.contains("9xjq"));
+        assertFalse(set.contains("9"));
+        assertTrue(set.intersects(cell("9")));
+    }
+
+    @Test
+    public void testMixedPrecisions() {
+        CellSet set = CellSet.of(cell("9xj"), cell("9xjq"), cell("9xk"), cell("dr"));
+        assertEquals(2, set.rangeCount());
+        assertTrue(set.contains("9xjqb"));
+        assertFalse(set.contains("9xm"));
+        assertEquals(new HashSet<>(Arrays.asList("9xj", "9xk", "dr")), set.toGeohashes());
+        assertEquals(32 + 32 + 1024, set.toGeohashes(4).size());
+    }
+
+    @Test
+    public void testSetAlgebraMatchesHashSets() {
+        Random random = new Random(41);
+        for (int t = 0; t < 200; t++) {
+            Set<String> a = randomHashes(random, "9x", 4);
+            Set<String> b = randomHashes(random, "9x", 4);
+            CellSet setA = CellSet.fromGeohashes(a);
+            CellSet setB = CellSet.fromGeohashes(b);
+
+            Set<String> union = new HashSet<>(a);
+            union.addAll(b);
+            Set<String> intersection = new HashSet<>(a);
+            intersection.retainAll(b);
+            Set<String> difference = new HashSet<>(a);
+            difference.removeAll(b);
+
+            assertEquals(union, setA.union(setB).toGeohashes(4));
+            assertEquals(intersection, setA.intersection(setB).toGeohashes(4));
+            assertEquals(difference, setA.difference(setB).toGeohashes(4));
+            assertEquals(setA, setA.union(setB).difference(setB.difference(setA)));
+        }
+    }
+
+    @Test
+    public void testDifferenceAcrossPrecisions() {
+        CellSet coarse = CellSet.of(cell("9x"));
+        CellSet fine = CellSet.of(cell("9xj"), cell("9xjq"));
+        CellSet difference = coarse.difference(fine);
+        assertEquals(31, difference.toCells().length);
+        assertFalse(difference.intersects(cell("9xj")));
+        assertEquals(coarse, difference.union(fine));
+        assertEquals(fine, coarse.intersection(fine));
+    }
+
+    @Test
+    public void testCoverage() {
+        Coordinates[] polygon = ScanlineRasterizerTest.WYOMING_CO;
+        for (int precision = 1; precision <= 6; precision++) {
+            CellSet coverage = GeoHashesInPolygon.coverage(polygon, precision);
+            HashSet<String> hashes = GeoHashesInPolygon.geohashesInPolygon(polygon, precision);
+            assertEquals(hashes, coverage.toGeohashes(precision));
+            assertEquals(hashes.size(), coverage.cellCount(precision));
+            for (String hash : hashes) {
+                assertTrue(coverage.contains(hash));
+            }
+        }
+    }
+
+    @Test
+    public void testCellIterator() {
+        CellSet set = CellSet.of(cell("9xj"), cell("9xjq"), cell("9xm0"), cell("dr"));
+        for (int precision = 1; precision <= 5; precision++) {
+            long[] cells = set.toCells(precision);
+            PrimitiveIterator.OfLong iterator = set.cells(precision);
+            for (long cell : cells) {
+                assertTrue(iterator.hasNext());
+                assertEquals(cell, iterator.nextLong());
+            }
+            assertFalse(iterator.hasNext());
+        }
+        assertFalse(CellSet.empty().cells(3).hasNext());
+    }
+
+    private static Set<String> randomHashes(Random random, String prefix, int precision) {
+        Set<String> hashes = new HashSet<>();
+        int count = random.nextInt(200);
+        for (int i = 0; i < count; i++) {
+            StringBuilder hash = new StringBuilder(prefix);
+            while (hash.length() < precision) {
+                hash.append(GeoHash.charMap[random.nextInt(random.nextBoolean() ? 4 : 32)]);
+            }
+            hashes.add(hash.toString());
+        }
+        return hashes;
+    }
+
+}
@@ -0,0 +1,62 @@
+import coords.Coordinates;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class CompactCoverTest {
+
+    private static void assertExpandsToUniformCover(Coordinates[] polygon, int precision) {
+        HashSet<String> compact = GeoHashesInPolygon.compactGeohashesInPolygon(polygon, precision);
+        HashSet<String> uniform = GeoHashesInPolygon.geohashesInPolygon(polygon, precision);
+        assertTrue(compact.size() <= uniform.size());
+        for (String hash : compact) {
+            assertTrue(hash.length() <= precision);
+        }
+        assertEquals(uniform, GeoHashesInPolygon.expand(compact, precision));
+    }
+
+    @Test
+    public void testSamplePolygons() {
+        for (Coordinates[] polygon : new Coordinates[][]{
+                ScanlineRasterizerTest.WYOMING_CO, ScanlineRasterizerTest.WEIRD, ScanlineRasterizerTest.NO_CO}) {
+            for (int precision = 1; precision <= 6; precision++) {
+                assertExpandsToUniformCover(polygon, precision);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomPolygons() {
+        Random random = new Random(23);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), i % 4 == 0);
+            assertExpandsToUniformCover(polygon, 1 + random.nextInt(5));
+        }
+    }
+
+    @Test
+    public void testLargePolygonIsCompact() {
+        Set<String> compact = GeoHashesInPolygon.compactGeohashesInPolygon(ScanlineRasterizerTest.WYOMING_CO, 6);
+        int uniform = GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.WYOMING_CO, 6).size();
+        assertTrue(compact.size() * 10 < uniform);
+        assertTrue(compact.stream().anyMatch(hash -> hash.length() < 6));
+    }
+
+    @Test
+    public void testExpand() {
+        Set<String> hashes = new HashSet<>();
+        hashes.add("9x");
+        hashes.add("9xjqb");
+        HashSet<String> expanded = GeoHashesInPolygon.expand(hashes, 3);
+        assertEquals(32, expanded.size());
+        assertTrue(expanded.contains("9xj"));
+    }
+
+}
@@ -0,0 +1,98 @@
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.GeoHashesInPolygon.Cover;
+import polygon.PointInPolygon;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class CoverModesTest {
+
+    @Test
+    public void testNesting() {
+        Random random = new Random(47);
+        for (int i = 0; i < 200; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), i % 4 == 0);
+            int precision = 1 + random.nextInt(5);
+            CellSet interior = GeoHashesInPolygon.coverage(polygon, precision, Cover.INTERIOR);
+            CellSet center = GeoHashesInPolygon.coverage(polygon, precision, Cover.CENTER);
+            CellSet touching = GeoHashesInPolygon.coverage(polygon, precision, Cover.TOUCHING);
+            assertTrue(interior.difference(center).isEmpty());
+            assertTrue(center.difference(touching).isEmpty());
+
+            // every vertex and every point inside lies in a touching cell
+            for (Coordinates vertex : polygon) {
+                assertTrue(touching.contains(vertex.getLatitude(), vertex.getLongitude()));
+            }
+            double[] bounding = GeoHashUtils.polyToBB(polygon);
+            for (int k = 0; k < 500; k++) {
+                double lat = bounding[0] + random.nextDouble() * (bounding[2] - bounding[0]);
+                double lon = bounding[1] + random.nextDouble() * (bounding[3] - bounding[1]);
+                boolean inside = PointInPolygon.pointInPolygon(lon, lat, polygon);
+                if (inside) {
+                    assertTrue(touching.contains(lat, lon));
+                } else {
+                    assertFalse(interior.contains(lat, lon));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testVerticesOnCellEdges() {
+        // boxes whose edges lie exactly on cell boundaries, so the cells beyond them touch
+        for (String hash : new String[]{"9x", "9xj", "s0", "kp"}) {
+            double[] cell = new double[4];
+            GeoHash.decodeCell(GeoHash.toCell(hash), cell);
+            Coordinates[] box = {
+                    new Coordinates(cell[0], cell[1], 0, 0), new Coordinates(cell[0], cell[3], 0, 0),
+                    new Coordinates(cell[2], cell[3], 0, 0), new Coordinates(cell[2], cell[1], 0, 0)
+            };
+            int precision = hash.length() + 1;
+            long rows = GeoHash.rows(precision), columns = GeoHash.columns(precision);
+            long first = GeoHash.toCell(hash + "0");
+            long row = GeoHash.latIndex(first), column = GeoHash.lonIndex(first);
+            CellSet expected = CellSet.empty();
+            double[] candidate = new double[4];
+            // the children span at most 8 rows and 8 columns, plus one all around
+            for (long r = Math.max(0, row - 1); r < Math.min(rows, row + 9); r++) {
+                for (long c = Math.max(0, column - 1); c < Math.min(columns, column + 9); c++) {
+                    long id = GeoHash.cellAt(r, c, precision);
+                    GeoHash.decodeCell(id, candidate);
+                    if (candidate[0] <= cell[2] && candidate[2] >= cell[0]
+                            && candidate[1] <= cell[3] && candidate[3] >= cell[1]) {
+                        expected = expected.union(CellSet.of(id));
+                    }
+                }
+            }
+            assertEquals(hash, expected.toGeohashes(precision),
+                    GeoHashesInPolygon.coverage(box, precision, Cover.TOUCHING).toGeohashes(precision));
+        }
+    }
+
+    @Test
+    public void testThinPolygon() {
+        // a sliver far narrower than a cell, between cell centers
+        Coordinates[] sliver = {
+                new Coordinates(40.01, -105.3, 0, 0),
+                new Coordinates(40.01, -104.6, 0, 0),
+                new Coordinates(40.0101, -104.6, 0, 0),
+                new Coordinates(40.0101, -105.3, 0, 0)
+        };
+        assertTrue(GeoHashesInPolygon.geohashesInPolygon(sliver, 4).isEmpty());
+        assertTrue(GeoHashesInPolygon.geohashesInPolygon(sliver, 4, Cover.INTERIOR).isEmpty());
+        assertEquals(GeoHashesInPolygon.geohashesInPolygon(sliver, 4, Cover.TOUCHING),
+                GeoHashesInPolygon.expand(GeoHashesInPolygon.coverage(sliver, 4, Cover.TOUCHING).toGeohashes(), 4));
+        long columns = GeoHash.lonIndex(-104.6, 4) - GeoHash.lonIndex(-105.3, 4) + 1;
+        assertEquals(columns, GeoHashesInPolygon.geohashesInPolygon(sliver, 4, Cover.TOUCHING).size());
+    }
+
+}
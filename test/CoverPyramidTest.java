@@ -0,0 +1,43 @@
+import coords.Coordinates;
+import org.junit.Test;
+import polygon.CoverPyramid;
+import polygon.GeoHashesInPolygon;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class CoverPyramidTest {
+
+    @Test
+    public void testLevelsMatchSinglePrecision() {
+        Random random = new Random(53);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), i % 4 == 0);
+            int min = random.nextInt(3);
+            int max = min + random.nextInt(4);
+            CoverPyramid pyramid = CoverPyramid.build(polygon, min, max);
+            for (int precision = min; precision <= max; precision++) {
+                assertEquals(GeoHashesInPolygon.coverage(polygon, precision), pyramid.getLevel(precision));
+            }
+        }
+    }
+
+    @Test
+    public void testSamples() {
+        for (Coordinates[] polygon : new Coordinates[][]{ScanlineRasterizerTest.WYOMING_CO,
+                ScanlineRasterizerTest.WEIRD, ScanlineRasterizerTest.NO_CO}) {
+            CoverPyramid pyramid = CoverPyramid.build(polygon, 2, 6);
+            for (int precision = 2; precision <= 6; precision++) {
+                assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, precision), pyramid.getGeohashes(precision));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutsideRange() {
+        CoverPyramid.build(ScanlineRasterizerTest.NO_CO, 2, 4).getLevel(5);
+    }
+
+}
@@ -0,0 +1,143 @@
+import coords.Coordinates;
+import geohash.CellSet;
+import org.junit.Test;
+import polygon.CoverageCache;
+import polygon.GeoHashesInPolygon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class CoverageCacheTest {
+
+    private static Coordinates[] rotatedAndReversed(Coordinates[] polygon) {
+        Coordinates[] result = new Coordinates[polygon.length + 1];
+        for (int i = 0; i < polygon.length; i++) {
+            Coordinates vertex = polygon[(polygon.length + 2 - i) % polygon.length];
+            result[i] = new Coordinates(vertex.getLatitude() + 1e-9, vertex.getLongitude(), 0, 0);
+        }
+        result[polygon.length] = result[0];
+        return result;
+    }
+
+    @Test
+    public void testEquivalentPolygonsShareAnEntry() {
+        CoverageCache cache = new CoverageCache(1 << 20);
+        Coordinates[] weird = ScanlineRasterizerTest.WEIRD;
+        CellSet first = cache.coverage(weird, 6);
+        assertSame(first, cache.coverage(rotatedAndReversed(weird), 6));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(GeoHashesInPolygon.geohashesInPolygon(weird, 6), cache.geohashesInPolygon(weird, 6));
+
+        cache.coverage(weird, 5);
+        assertEquals(2, cache.misses());
+        assertEquals(2, cache.size());
+    }
+
+    private static long entryBytes(Coordinates[] polygon, int precision) {
+        CoverageCache probe = new CoverageCache(Long.MAX_VALUE);
+        probe.coverage(polygon, precision);
+        return probe.estimatedBytes();
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        long budget = entryBytes(ScanlineRasterizerTest.WEIRD, 5) + entryBytes(ScanlineRasterizerTest.WYOMING_CO, 5);
+        CoverageCache cache = new CoverageCache(budget);
+
+        cache.coverage(ScanlineRasterizerTest.NO_CO, 5);
+        cache.coverage(ScanlineRasterizerTest.WEIRD, 5);
+        cache.coverage(ScanlineRasterizerTest.NO_CO, 5);
+        cache.coverage(ScanlineRasterizerTest.WEIRD, 5);
+        assertEquals(0, cache.evictions());
+        cache.coverage(ScanlineRasterizerTest.WYOMING_CO, 5);
+        assertEquals(1, cache.evictions());
+        assertEquals(budget, cache.estimatedBytes());
+
+        long misses = cache.misses();
+        cache.coverage(ScanlineRasterizerTest.WYOMING_CO, 5);
+        cache.coverage(ScanlineRasterizerTest.WEIRD, 5);
+        assertEquals(misses, cache.misses());
+        cache.coverage(ScanlineRasterizerTest.NO_CO, 5);
+        assertEquals(misses + 1, cache.misses());
+    }
+
+    @Test
+    public void testRejectsEntriesOverBudget() {
+        CoverageCache cache = new CoverageCache(entryBytes(ScanlineRasterizerTest.WEIRD, 5));
+        cache.coverage(ScanlineRasterizerTest.WEIRD, 5);
+        cache.coverage(ScanlineRasterizerTest.WYOMING_CO, 6);
+        assertEquals(1, cache.rejected());
+        assertEquals(0, cache.evictions());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testConcurrentCallersComputeOnce() throws Exception {
+        CoverageCache cache = new CoverageCache(1 << 24);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CellSet>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.coverage(ScanlineRasterizerTest.WYOMING_CO, 7);
+                }));
+            }
+            start.countDown();
+            CellSet expected = results.get(0).get();
+            for (Future<CellSet> result : results) {
+                assertSame(expected, result.get());
+            }
+            assertEquals(1, cache.misses());
+            assertEquals(threads - 1, cache.hits() + cache.coalesced());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWaitersRetryWhenComputingCallerIsNotAdmitted() throws Exception {
+        CoverageCache cache = new CoverageCache(1 << 20);
+        Coordinates[] polygon = ScanlineRasterizerTest.WYOMING_CO;
+        CountDownLatch claimed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> refused = executor.submit(() -> cache.coverage(polygon, 4, () -> {
+                claimed.countDown();
+                // turned away only once the other caller is waiting on this one
+                while (cache.coalesced() == 0) {
+                    Thread.yield();
+                }
+                throw new IllegalStateException("not admitted");
+            }));
+            claimed.await();
+            int[] admitted = new int[1];
+            CellSet coverage = cache.coverage(polygon, 4, () -> admitted[0]++);
+            assertEquals(GeoHashesInPolygon.coverage(polygon, 4), coverage);
+            assertEquals(1, admitted[0]);
+            assertEquals(1, cache.misses());
+            try {
+                refused.get();
+                throw new AssertionError("the first caller was admitted");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
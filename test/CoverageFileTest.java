@@ -0,0 +1,79 @@
+import coords.Coordinates;
+import geohash.CellSet;
+import geohash.CoverageFile;
+import geohash.CoverageFileWriter;
+import geohash.GeoHash;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class CoverageFileTest {
+
+    @Test
+    public void testRoundTripAndLookups() throws IOException {
+        Random random = new Random(53);
+        List<CellSet> covers = new ArrayList<>();
+        covers.add(GeoHashesInPolygon.coverage(ScanlineRasterizerTest.WYOMING_CO, 7));
+        covers.add(GeoHashesInPolygon.coverage(ScanlineRasterizerTest.WEIRD, 6));
+        covers.add(CellSet.empty());
+        covers.add(GeoHashesInPolygon.coverage(ScanlineRasterizerTest.NO_CO, 5));
+        for (int i = 0; i < 20; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(20), false);
+            covers.add(GeoHashesInPolygon.coverage(polygon, 1 + random.nextInt(5)));
+        }
+
+        Path file = Files.createTempFile("coverage", ".bin");
+        try {
+            try (CoverageFileWriter writer = new CoverageFileWriter(file)) {
+                for (int i = 0; i < covers.size(); i++) {
+                    assertEquals(i, writer.add(covers.get(i), i));
+                }
+            }
+
+            try (CoverageFile catalog = CoverageFile.open(file)) {
+                assertEquals(covers.size(), catalog.regionCount());
+                for (int region = 0; region < covers.size(); region++) {
+                    CellSet cover = covers.get(region);
+                    assertEquals(region, catalog.precision(region));
+                    assertEquals(cover, catalog.read(region));
+                    long[] cells = cover.toCells();
+                    PrimitiveIterator.OfLong streamed = catalog.cells(region);
+                    for (long cell : cells) {
+                        assertEquals(cell, streamed.nextLong());
+                    }
+                    assertTrue(!streamed.hasNext());
+                }
+
+                for (int i = 0; i < 20000; i++) {
+                    double lat = i % 2 == 0 ? 38 + random.nextDouble() * 7 : random.nextDouble() * 180 - 90;
+                    double lon = i % 2 == 0 ? -110 + random.nextDouble() * 8 : random.nextDouble() * 360 - 180;
+                    int precision = 1 + random.nextInt(GeoHash.MAX_PRECISION);
+                    long cell = GeoHash.encodeCell(lat, lon, precision);
+                    List<Integer> expected = new ArrayList<>();
+                    for (int region = 0; region < covers.size(); region++) {
+                        if (covers.get(region).contains(cell)) {
+                            expected.add(region);
+                        }
+                    }
+                    assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                            catalog.regionsContaining(cell));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
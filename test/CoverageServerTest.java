@@ -0,0 +1,143 @@
+import coords.Coordinates;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import polygon.CoverageCache;
+import polygon.GeoHashesInPolygon;
+import runner.CoverageServer;
+import runner.LoadTest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class CoverageServerTest {
+
+    private CoverageServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = new CoverageServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new CoverageCache(1 << 24), 1_000, 5_000_000, 2_000_000, 5_000).start();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static String body(Coordinates[] polygon) {
+        StringBuilder body = new StringBuilder();
+        for (Coordinates vertex : polygon) {
+            body.append(vertex.getLatitude()).append(' ').append(vertex.getLongitude()).append('\n');
+        }
+        return body.toString();
+    }
+
+    /**
+     * @return the status followed by the lines of the response
+     */
+    private List<String> post(String query, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                URI.create("http://127.0.0.1:" + server.getPort() + "/cover" + query).toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.US_ASCII));
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(Integer.toString(connection.getResponseCode()));
+        InputStream in = connection.getResponseCode() == 200 ? connection.getInputStream() : connection.getErrorStream();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static Set<String> cover(List<String> response) {
+        assertEquals("200", response.get(0));
+        return new HashSet<>(response.subList(1, response.size()));
+    }
+
+    @Test
+    public void testCover() throws IOException {
+        for (Coordinates[] polygon : new Coordinates[][]{ScanlineRasterizerTest.WEIRD, ScanlineRasterizerTest.NO_CO}) {
+            for (int precision = 2; precision <= 5; precision++) {
+                assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, precision),
+                        cover(post("?precision=" + precision, body(polygon))));
+            }
+        }
+        // a cell budget picks the precision, with commas between coordinates
+        assertEquals(GeoHashesInPolygon.geohashesWithinBudget(ScanlineRasterizerTest.NO_CO, 500),
+                cover(post("?cells=500", "39.56758783088903,-106.1444091796875; 40.942564441333296,"
+                        + "-106.1444091796875; 40.942564441333296,-103.88671875; 39.56758783088903,-103.88671875")));
+        assertEquals(9, server.getServed());
+    }
+
+    @Test
+    public void testRejectsBadRequests() throws IOException {
+        assertEquals("400", post("?precision=3", "40 -105 41").get(0));
+        assertEquals("400", post("?precision=3", "40 -105 41 -104 banana -104").get(0));
+        assertEquals("400", post("?precision=13", body(ScanlineRasterizerTest.WEIRD)).get(0));
+        // millions of cells in one request are refused before any work is done
+        assertEquals("413", post("?precision=8", body(ScanlineRasterizerTest.WYOMING_CO)).get(0));
+        assertEquals(1, server.getRefused());
+        assertEquals(0, server.getCache().misses());
+    }
+
+    @Test
+    public void testIdenticalRequestsComputeOnce() throws Exception {
+        // room for one computation and no waiting: only the request that computes may be charged
+        server.stop(0);
+        server = new CoverageServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new CoverageCache(1 << 24), 0, 5_000_000, 1, 0).start();
+        String body = body(ScanlineRasterizerTest.WYOMING_CO);
+        Set<String> expected = GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.WYOMING_CO, 5);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(clients.submit(() -> post("?precision=5", body)));
+            }
+            for (Future<List<String>> response : responses) {
+                assertEquals(expected, cover(response.get()));
+            }
+        } finally {
+            clients.shutdown();
+        }
+        CoverageCache cache = server.getCache();
+        assertEquals(1, cache.misses());
+        assertEquals(7, cache.hits() + cache.coalesced());
+        assertEquals(0, server.getThrottled());
+        assertEquals(8, server.getServed());
+    }
+
+    @Test
+    public void testLoadTest() throws InterruptedException {
+        LoadTest.Report report = LoadTest.run(URI.create("http://127.0.0.1:" + server.getPort() + "/cover"), 4, 500);
+        assertTrue(report.getRequests() > 0);
+        assertEquals(0, report.getErrors());
+        assertTrue(report.smallPercentile(.5) <= report.smallPercentile(.99));
+    }
+
+}
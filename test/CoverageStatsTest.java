@@ -0,0 +1,133 @@
+import coords.Coordinates;
+import coords.PackedRing;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import polygon.CoverageStats;
+import polygon.FillRule;
+import polygon.GeoHashesInPolygon;
+import polygon.GeoHashesInPolygon.Engine;
+import polygon.PreparedPolygon;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class CoverageStatsTest {
+
+    private static long boundingBoxCells(Coordinates[] polygon, int precision) {
+        double[] bounding = GeoHashUtils.polyToBB(polygon);
+        long rows = GeoHash.latIndex(bounding[2], precision) - GeoHash.latIndex(bounding[0], precision) + 1;
+        long columns = GeoHash.lonIndex(bounding[3], precision) - GeoHash.lonIndex(bounding[1], precision) + 1;
+        return rows * columns;
+    }
+
+    @Test
+    public void testCounts() {
+        PreparedPolygon polygon = new PreparedPolygon(ScanlineRasterizerTest.WEIRD);
+        long cells = boundingBoxCells(ScanlineRasterizerTest.WEIRD, 5);
+
+        CoverageStats scanline = new CoverageStats();
+        Set<String> hashes = GeoHashesInPolygon.geohashesInPolygon(polygon, 5, Engine.SCANLINE, scanline);
+        assertEquals(Engine.SCANLINE, scanline.getEngine());
+        assertEquals(5, scanline.getPrecision());
+        assertEquals(hashes.size(), scanline.getCellsEmitted());
+        assertEquals(cells, scanline.getEstimatedCellsScanned());
+        assertEquals(0, scanline.getEstimatedPointInPolygonTests());
+        assertTrue(scanline.getEstimatedEdgeComparisons() > 0);
+        assertTrue(scanline.getWallNanos() > 0);
+
+        CoverageStats pointInPolygon = new CoverageStats();
+        GeoHashesInPolygon.geohashesInPolygon(polygon, 5, Engine.POINT_IN_POLYGON, pointInPolygon);
+        assertEquals(hashes.size(), pointInPolygon.getCellsEmitted());
+        // rows only test the columns of rings reaching their centers
+        assertEquals(pointInPolygon.getEstimatedCellsScanned(), pointInPolygon.getEstimatedPointInPolygonTests());
+        assertTrue(pointInPolygon.getEstimatedPointInPolygonTests() > 0);
+        assertTrue(pointInPolygon.getEstimatedPointInPolygonTests() <= cells);
+        assertTrue(pointInPolygon.getEstimatedEdgeComparisons() > scanline.getEstimatedEdgeComparisons());
+        assertTrue(pointInPolygon.getEstimatedEdgeComparisons() <= cells * ScanlineRasterizerTest.WEIRD.length);
+    }
+
+    @Test
+    public void testPointInPolygonScansRingBoxes() {
+        // two boxes side by side at different latitudes: rows only test the columns of the boxes they reach
+        PreparedPolygon polygon = new PreparedPolygon(FillRule.EVEN_ODD,
+                PackedRing.of(10.1, 10.1, 10.1, 19.9, 19.9, 19.9, 19.9, 10.1),
+                PackedRing.of(30.1, 30.1, 30.1, 39.9, 39.9, 39.9, 39.9, 30.1));
+        CoverageStats stats = new CoverageStats();
+        GeoHashesInPolygon.geohashesInPolygon(polygon, 3, Engine.POINT_IN_POLYGON, stats);
+        long expected = 0;
+        for (double[] box : new double[][]{{10.1, 10.1, 19.9, 19.9}, {30.1, 30.1, 39.9, 39.9}}) {
+            long rows = 0;
+            for (long row = GeoHash.latIndex(box[0], 3); row <= GeoHash.latIndex(box[2], 3); row++) {
+                double center = -90 + (row + 0.5) * GeoHash.latStep(3);
+                if (box[0] <= center && center <= box[2]) {
+                    rows++;
+                }
+            }
+            expected += rows * (GeoHash.lonIndex(box[3], 3) - GeoHash.lonIndex(box[1], 3) + 1);
+        }
+        assertEquals(expected, stats.getEstimatedPointInPolygonTests());
+        assertEquals(expected, stats.getEstimatedCellsScanned());
+        // fewer than the bounding box of both
+        assertTrue(2 * expected < (GeoHash.latIndex(39.9, 3) - GeoHash.latIndex(10.1, 3) + 1)
+                * (GeoHash.lonIndex(39.9, 3) - GeoHash.lonIndex(10.1, 3) + 1));
+    }
+
+    @Test
+    public void testListener() {
+        List<CoverageStats> seen = new ArrayList<>();
+        GeoHashesInPolygon.setListener(seen::add);
+        try {
+            GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.NO_CO, 4);
+            GeoHashesInPolygon.parallelGeohashesInPolygon(ScanlineRasterizerTest.WYOMING_CO, 4);
+        } finally {
+            GeoHashesInPolygon.setListener(null);
+        }
+        GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.NO_CO, 4);
+
+        assertEquals(2, seen.size());
+        assertEquals(GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.NO_CO, 4).size(),
+                seen.get(0).getCellsEmitted());
+        assertEquals(boundingBoxCells(ScanlineRasterizerTest.WYOMING_CO, 4), seen.get(1).getEstimatedCellsScanned());
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("coverage", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("polygon.Coverage");
+            recording.start();
+            GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.NO_CO, 5);
+            GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.WEIRD, 5, Engine.POINT_IN_POLYGON);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("polygon.Coverage")) {
+                    events.add(event);
+                }
+            }
+            assertEquals(2, events.size());
+            assertEquals("SCANLINE", events.get(0).getString("engine"));
+            assertEquals(4, events.get(0).getInt("vertices"));
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(ScanlineRasterizerTest.NO_CO, 5).size(),
+                    events.get(0).getLong("cellsEmitted"));
+            assertEquals(events.get(1).getLong("estimatedCellsScanned"),
+                    events.get(1).getLong("estimatedPointInPolygonTests"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+import geohash.GeoHash;
+import geohash.GeoHashBufferDecoder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class GeoHashBufferDecoderTest {
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testLines() {
+        ByteBuffer buf = ascii("9xjq\r\n\nDR5RU\n9x");
+        long[] cells = new long[8];
+        assertEquals(2, GeoHashBufferDecoder.decodeLines(buf, false, cells, 0, cells.length));
+        assertEquals(GeoHash.toCell("9xjq"), cells[0]);
+        assertEquals(GeoHash.toCell("dr5ru"), cells[1]);
+        assertEquals(2, buf.remaining());
+        assertEquals(1, GeoHashBufferDecoder.decodeLines(buf, true, cells, 2, cells.length - 2));
+        assertEquals(GeoHash.toCell("9x"), cells[2]);
+        assertEquals(0, buf.remaining());
+    }
+
+    @Test
+    public void testFixedWidth() {
+        ByteBuffer buf = ascii("9xjq    dr5ru   9x");
+        long[] cells = new long[4];
+        assertEquals(2, GeoHashBufferDecoder.decodeFixedWidth(buf, 8, cells, 0, cells.length));
+        assertEquals(GeoHash.toCell("9xjq"), cells[0]);
+        assertEquals(GeoHash.toCell("dr5ru"), cells[1]);
+        assertEquals(2, buf.remaining());
+    }
+
+    @Test
+    public void testFixedWidthRejectsBadRecords() {
+        ByteBuffer nul = ascii("9xjq\0\0\0\0");
+        long[] cells = new long[1];
+        assertEquals(1, GeoHashBufferDecoder.decodeFixedWidth(nul, 8, cells, 0, 1));
+        assertEquals(GeoHash.toCell("9xjq"), cells[0]);
+        for (String bad : new String[]{"9aq     ", "9xjq   x", "        "}) {
+            try {
+                GeoHashBufferDecoder.decodeFixedWidth(ascii(bad), 8, cells, 0, 1);
+                throw new AssertionError("decoded '" + bad + "'");
+            } catch (IllegalArgumentException expected) {
+                // only padding may follow the hash, and a record needs a hash
+            }
+        }
+    }
+
+    @Test
+    public void testErrorsGiveFileOffsets() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("9xjq\n");
+        }
+        text.append("9xa\n");
+        Path file = Files.createTempFile("geohashes", ".txt");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+            GeoHashBufferDecoder.forEachCell(file, 64, cell -> true);
+            throw new AssertionError("decoded an invalid byte");
+        } catch (IllegalArgumentException e) {
+            assertEquals("invalid geohash byte 97 at 502", e.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCentroidsAndBoxes() {
+        double[] centers = new double[4];
+        assertEquals(2, GeoHashBufferDecoder.decodeCentroids(ascii("9xjq\ndr5ru\n"), true, centers, 2));
+        double[] bbox = GeoHash.decode_bbox("dr5ru");
+        assertEquals((bbox[0] + bbox[2]) / 2, centers[2], 0);
+        assertEquals((bbox[1] + bbox[3]) / 2, centers[3], 0);
+
+        double[] boxes = new double[8];
+        assertEquals(2, GeoHashBufferDecoder.decodeBoxes(ascii("9xjq\ndr5ru\n"), true, boxes, 2));
+        assertArrayEquals(GeoHash.decode_bbox("9xjq"), Arrays.copyOf(boxes, 4), 0);
+    }
+
+    @Test
+    public void testMappedFileInChunks() throws IOException {
+        Random random = new Random(47);
+        StringBuilder text = new StringBuilder();
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int precision = 1 + random.nextInt(GeoHash.MAX_PRECISION);
+            long cell = GeoHash.encodeCell(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, precision);
+            expected.add(cell);
+            text.append(GeoHash.toGeoHash(cell));
+            if (i < 4999) {
+                text.append(i % 7 == 0 ? "\r\n" : "\n");
+            }
+        }
+        Path file = Files.createTempFile("geohashes", ".txt");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+            List<Long> decoded = new ArrayList<>();
+            long visited = GeoHashBufferDecoder.forEachCell(file, 97, cell -> decoded.add(cell));
+            assertEquals(expected.size(), visited);
+            assertEquals(expected, decoded);
+
+            List<Long> first = new ArrayList<>();
+            GeoHashBufferDecoder.forEachCell(file, cell -> first.add(cell) && first.size() < 10);
+            assertEquals(expected.subList(0, 10), first);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidByte() {
+        GeoHashBufferDecoder.decodeLines(ascii("9xa\n"), true, new long[1], 0, 1);
+    }
+
+}
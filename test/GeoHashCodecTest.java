@@ -0,0 +1,211 @@
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class GeoHashCodecTest {
+
+    /**
+     * the original bisection encoder, in doubles, used as a reference
+     */
+    private static String bisect(double latitude, double longitude, int precision) {
+        double[] high = {GeoHash.LONGITUDE_RANGE, GeoHash.LATITUDE_RANGE};
+        double[] low = {-GeoHash.LONGITUDE_RANGE, -GeoHash.LATITUDE_RANGE};
+        double[] value = {longitude, latitude};
+        StringBuilder hash = new StringBuilder();
+        for (int p = 0; p < precision; ++p) {
+            int charBits = 0;
+            for (int b = 0; b < GeoHash.BITS_PER_CHAR; ++b) {
+                int axis = (p * GeoHash.BITS_PER_CHAR + b) % 2;
+                charBits <<= 1;
+                double middle = (high[axis] + low[axis]) / 2;
+                if (value[axis] > middle) {
+                    charBits |= 1;
+                    low[axis] = middle;
+                } else {
+                    high[axis] = middle;
+                }
+            }
+            hash.append(GeoHash.charMap[charBits]);
+        }
+        return hash.toString();
+    }
+
+    @Test
+    public void testKnownHashes() {
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+        assertEquals("9xjq", GeoHash.encode(40.5853, -105.0844, 4));
+        assertEquals("", GeoHash.encode(10.0, 10.0, 0));
+    }
+
+    @Test
+    public void testMatchesBisection() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int precision = 1 + random.nextInt(GeoHash.MAX_PRECISION);
+            assertEquals(bisect(lat, lon, precision), GeoHash.encode(lat, lon, precision));
+        }
+    }
+
+    @Test
+    public void testBoundariesAndExtremes() {
+        double[][] points = {{0, 0}, {90, 180}, {-90, -180}, {45, 90}, {-45, -90}, {100, 200}, {-100, -200}};
+        for (double[] point : points) {
+            for (int precision = 1; precision <= GeoHash.MAX_PRECISION; precision++) {
+                assertEquals(bisect(point[0], point[1], precision), GeoHash.encode(point[0], point[1], precision));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(7);
+        double[] bbox = new double[4];
+        for (int i = 0; i < 5000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int precision = random.nextInt(GeoHash.MAX_PRECISION + 1);
+            long cell = GeoHash.encodeCell(lat, lon, precision);
+            String hash = GeoHash.toGeoHash(cell);
+
+            assertEquals(precision, GeoHash.cellPrecision(cell));
+            assertEquals(cell, GeoHash.toCell(hash));
+            assertEquals(cell, GeoHash.toCell(hash.toUpperCase()));
+
+            GeoHash.decodeCell(cell, bbox);
+            assertArrayEquals(bbox, GeoHash.decode_bbox(hash), 0);
+            assertTrue(bbox[0] <= lat && lat <= bbox[2]);
+            assertTrue(bbox[1] <= lon && lon <= bbox[3]);
+        }
+    }
+
+    @Test
+    public void testCellOrderMatchesStringOrder() {
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            int precision = 1 + random.nextInt(GeoHash.MAX_PRECISION);
+            long a = GeoHash.encodeCell(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, precision);
+            long b = GeoHash.encodeCell(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, precision);
+            assertTrue(a > 0 && b > 0);
+            assertEquals(Integer.signum(GeoHash.toGeoHash(a).compareTo(GeoHash.toGeoHash(b))),
+                    Long.signum(a - b));
+        }
+    }
+
+    @Test
+    public void testGridIndices() {
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int precision = random.nextInt(GeoHash.MAX_PRECISION + 1);
+            long cell = GeoHash.encodeCell(lat, lon, precision);
+            long row = GeoHash.latIndex(lat, precision);
+            long column = GeoHash.lonIndex(lon, precision);
+            assertEquals(row, GeoHash.latIndex(cell));
+            assertEquals(column, GeoHash.lonIndex(cell));
+            assertEquals(cell, GeoHash.cellAt(row, column, precision));
+        }
+    }
+
+    @Test
+    public void testNeighbors() {
+        // away from the edges of the world, matches stepping the decoded center by one cell
+        Random random = new Random(5);
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {-1, -1}};
+        for (int i = 0; i < 2000; i++) {
+            int precision = 1 + random.nextInt(GeoHash.MAX_PRECISION);
+            String hash = GeoHash.encode(random.nextDouble() * 160 - 80, random.nextDouble() * 340 - 170, precision);
+            double[] bbox = GeoHash.decode_bbox(hash);
+            for (int[] direction : directions) {
+                double lat = (bbox[0] + bbox[2]) / 2 + direction[0] * (bbox[2] - bbox[0]);
+                double lon = (bbox[1] + bbox[3]) / 2 + direction[1] * (bbox[3] - bbox[1]);
+                if (Math.abs(lat) > GeoHash.LATITUDE_RANGE || Math.abs(lon) > GeoHash.LONGITUDE_RANGE) {
+                    continue;
+                }
+                assertEquals(GeoHash.encode(lat, lon, precision), GeoHashUtils.neighbor(hash, direction));
+            }
+        }
+
+        // wraps across the antimeridian
+        assertEquals("2", GeoHashUtils.neighbor("r", new int[]{0, 1}));
+        assertEquals("r", GeoHashUtils.neighbor("2", new int[]{0, -1}));
+        long east = GeoHash.encodeCell(10, 179.9999, 7);
+        long west = GeoHashUtils.neighbor(east, 0, 1);
+        assertEquals(0, GeoHash.lonIndex(west));
+        assertEquals(GeoHash.latIndex(east), GeoHash.latIndex(west));
+
+        // clamps at the poles
+        assertEquals("zzz", GeoHashUtils.neighbor("zzz", new int[]{1, 0}));
+        assertEquals("000", GeoHashUtils.neighbor("000", new int[]{-1, 0}));
+    }
+
+    @Test
+    public void testBulkEncodeMatchesPointEncode() {
+        Random random = new Random(13);
+        int n = 10000;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = i % 100 == 0 ? 90 * (i % 3 - 1) : random.nextDouble() * 180 - 90;
+            lons[i] = i % 100 == 1 ? 180 * (i % 3 - 1) : random.nextDouble() * 360 - 180;
+        }
+        for (int precision = 0; precision <= GeoHash.MAX_PRECISION; precision++) {
+            long[] cells = new long[n];
+            GeoHash.encodeCells(lats, lons, precision, cells);
+            long[] buffered = new long[n];
+            GeoHash.encodeCells(DoubleBuffer.wrap(lats), DoubleBuffer.wrap(lons), precision, buffered);
+            char[] chars = new char[n * precision];
+            GeoHash.encodeChars(lats, lons, precision, chars);
+            for (int i = 0; i < n; i++) {
+                long expected = GeoHash.encodeCell(lats[i], lons[i], precision);
+                assertEquals(expected, cells[i]);
+                assertEquals(expected, buffered[i]);
+                assertEquals(GeoHash.toGeoHash(expected), new String(chars, i * precision, precision));
+            }
+        }
+    }
+
+    @Test
+    public void testBulkEncodeChecksLengths() {
+        double[] three = {1, 2, 3};
+        double[] two = {1, 2};
+        Runnable[] mismatched = {
+                () -> GeoHash.encodeCells(DoubleBuffer.wrap(three), DoubleBuffer.wrap(two), 5, new long[3]),
+                () -> GeoHash.encodeCells(DoubleBuffer.wrap(two), DoubleBuffer.wrap(three), 5, new long[3]),
+                () -> GeoHash.encodeCells(DoubleBuffer.wrap(three), DoubleBuffer.wrap(three), 5, new long[2]),
+                () -> GeoHash.encodeCells(three, two, 5, new long[3]),
+                () -> GeoHash.encodeCells(three, three, 5, new long[2]),
+                () -> GeoHash.encodeCells(three, three, 1, 3, 5, new long[3], 0),
+                // offset plus length past Integer.MAX_VALUE must not wrap around
+                () -> GeoHash.encodeCells(three, three, 2, Integer.MAX_VALUE, 5, new long[3], 0),
+                () -> GeoHash.encodeCells(three, three, 0, 3, 5, new long[3], Integer.MAX_VALUE),
+                () -> GeoHash.encodeChars(three, two, 5, new char[15]),
+                () -> GeoHash.encodeChars(two, three, 5, new char[15]),
+                () -> GeoHash.encodeChars(three, three, 5, new char[14])
+        };
+        for (Runnable call : mismatched) {
+            try {
+                call.run();
+                throw new AssertionError("accepted mismatched lengths");
+            } catch (IllegalArgumentException expected) {
+                // lengths are checked before encoding
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCharacter() {
+        GeoHash.toCell("9xa");
+    }
+
+}
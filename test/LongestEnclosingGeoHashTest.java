@@ -1,7 +1,12 @@
 import coords.Coordinates;
+import geohash.CommonPrefix;
+import geohash.GeoHash;
 import geohash.LongestEnclosingGeoHash;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 
 
@@ -65,4 +70,77 @@ public class LongestEnclosingGeoHashTest {
         assertEquals("9xj", longestEnclosingHash);
     }
 
+    /**
+     * the original string based longest common prefix, used as a reference
+     */
+    private static String commonPrefix(double[] lats, double[] lons) {
+        String prefix = GeoHash.encode(lats[0], lons[0], GeoHash.MAX_PRECISION);
+        for (int i = 1; i < lats.length; i++) {
+            String hash = GeoHash.encode(lats[i], lons[i], GeoHash.MAX_PRECISION);
+            int length = 0;
+            while (length < prefix.length() && prefix.charAt(length) == hash.charAt(length)) {
+                length++;
+            }
+            prefix = prefix.substring(0, length);
+        }
+        return prefix;
+    }
+
+    @Test
+    public void testInterleavedMatchesStrings() {
+        Random random = new Random(23);
+        for (int i = 0; i < 500; i++) {
+            int n = 1 + random.nextInt(200);
+            double spread = Math.pow(10, -random.nextInt(8));
+            double lat = random.nextDouble() * 160 - 80;
+            double lon = random.nextDouble() * 340 - 170;
+            double[] lats = new double[n];
+            double[] lons = new double[n];
+            for (int j = 0; j < n; j++) {
+                lats[j] = lat + random.nextDouble() * spread;
+                lons[j] = lon + random.nextDouble() * spread;
+            }
+            String expected = commonPrefix(lats, lons);
+            CommonPrefix prefix = LongestEnclosingGeoHash.commonPrefix(lats, lons);
+            assertEquals(expected, prefix.getGeoHash());
+            assertEquals(expected.length(), prefix.getPrecision());
+            assertEquals(expected, LongestEnclosingGeoHash.longestEnclosingHash(lats, lons));
+
+            // the bit prefix reaches exactly to the first differing bit
+            long first = GeoHash.encodeCell(lats[0], lons[0], GeoHash.MAX_PRECISION);
+            int bits = prefix.getBits();
+            boolean differs = false;
+            for (int j = 1; j < n; j++) {
+                long cell = GeoHash.encodeCell(lats[j], lons[j], GeoHash.MAX_PRECISION);
+                assertEquals(first >>> (63 - bits), cell >>> (63 - bits));
+                differs |= bits < 60 && (first >>> (62 - bits)) != (cell >>> (62 - bits));
+            }
+            assertEquals(bits < 60, differs);
+        }
+    }
+
+    @Test
+    public void testParallelReduction() {
+        Random random = new Random(29);
+        int n = 300000;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = 40.5 + random.nextDouble() * 0.01;
+            lons[i] = -105.1 + random.nextDouble() * 0.01;
+        }
+        String expected = commonPrefix(lats, lons);
+        assertEquals(expected, LongestEnclosingGeoHash.commonPrefix(lats, lons).getGeoHash());
+
+        long[] cells = new long[n];
+        GeoHash.encodeCells(lats, lons, GeoHash.MAX_PRECISION, cells);
+        assertEquals(expected, LongestEnclosingGeoHash.commonPrefix(Arrays.stream(cells).parallel()).getGeoHash());
+
+        // mixed precisions are limited by the shortest cell
+        long coarse = GeoHash.encodeCell(lats[0], lons[0], 2);
+        assertEquals(GeoHash.toGeoHash(coarse),
+                LongestEnclosingGeoHash.commonPrefix(Arrays.stream(new long[]{cells[0], coarse})).getGeoHash());
+        assertEquals("", LongestEnclosingGeoHash.commonPrefix(Arrays.stream(new long[0])).getGeoHash());
+    }
+
 }
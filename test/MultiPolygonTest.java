@@ -0,0 +1,159 @@
+import coords.Coordinates;
+import coords.MultiPolygon;
+import coords.PackedRing;
+import geohash.CellSet;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+import polygon.FillRule;
+import polygon.GeoHashesInPolygon;
+import polygon.GeoHashesInPolygon.Engine;
+import polygon.PreparedPolygon;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class MultiPolygonTest {
+
+    private static PackedRing box(double south, double west, double north, double east, boolean clockwise) {
+        return clockwise
+                ? PackedRing.of(south, west, north, west, north, east, south, east)
+                : PackedRing.of(south, west, south, east, north, east, north, west);
+    }
+
+    private static Set<String> cover(PackedRing ring, int precision) {
+        return GeoHashesInPolygon.geohashesInPolygon(ring, precision);
+    }
+
+    /**
+     * every engine gives the same cells for the prepared polygon
+     */
+    private static Set<String> assertEnginesAgree(PreparedPolygon polygon, int precision) {
+        Set<String> scanline = GeoHashesInPolygon.geohashesInPolygon(polygon, precision, Engine.SCANLINE);
+        assertEquals(scanline, GeoHashesInPolygon.geohashesInPolygon(polygon, precision, Engine.POINT_IN_POLYGON));
+        assertEquals(scanline, GeoHashesInPolygon.coverage(polygon, precision).toGeohashes(precision));
+        assertEquals(scanline, GeoHashesInPolygon.cells(polygon, precision).mapToObj(GeoHash::toGeoHash)
+                .collect(Collectors.toSet()));
+        return scanline;
+    }
+
+    @Test
+    public void testHoles() {
+        PackedRing outer = box(38.1, -109.3, 41.9, -101.7, false);
+        PackedRing hole = box(39.2, -107.4, 40.8, -104.6, true);
+        for (FillRule rule : FillRule.values()) {
+            for (int precision = 2; precision <= 5; precision++) {
+                Set<String> expected = new HashSet<>(cover(outer, precision));
+                expected.removeAll(cover(hole, precision));
+                assertEquals(expected, GeoHashesInPolygon.geohashesInPolygon(MultiPolygon.of(outer, hole), precision, rule));
+                // the hole is cut out whichever way its ring runs
+                assertEquals(expected, assertEnginesAgree(
+                        new PreparedPolygon(MultiPolygon.of(outer, box(39.2, -107.4, 40.8, -104.6, false)), rule),
+                        precision));
+            }
+        }
+    }
+
+    @Test
+    public void testOverlappingPolygons() {
+        PackedRing first = box(38.1, -109.3, 41.9, -103.7, false);
+        PackedRing second = box(39.2, -106.4, 43.8, -101.6, true);
+        MultiPolygon both = MultiPolygon.of(first).and(second);
+        for (int precision = 2; precision <= 5; precision++) {
+            Set<String> union = new HashSet<>(cover(first, precision));
+            union.addAll(cover(second, precision));
+            Set<String> overlap = new HashSet<>(cover(first, precision));
+            overlap.retainAll(cover(second, precision));
+            Set<String> exclusive = new HashSet<>(union);
+            exclusive.removeAll(overlap);
+
+            assertEquals(union, assertEnginesAgree(new PreparedPolygon(both, FillRule.NONZERO), precision));
+            assertEquals(exclusive, assertEnginesAgree(new PreparedPolygon(both, FillRule.EVEN_ODD), precision));
+        }
+    }
+
+    @Test
+    public void testAntimeridian() {
+        // a box from 170.3 east across the antimeridian to 170.3 west
+        PackedRing ring = PackedRing.of(10.1, 170.3, 19.9, 170.3, 19.9, -170.3, 10.1, -170.3);
+        MultiPolygon polygon = MultiPolygon.wrapping(ring);
+        assertArrayEquals(new double[]{10.1, 170.3, 19.9, 189.7}, GeoHashUtils.polyToBB(polygon), 1e-9);
+
+        for (int precision = 1; precision <= 5; precision++) {
+            Set<String> expected = new HashSet<>(cover(box(10.1, 170.3, 19.9, 180, false), precision));
+            expected.addAll(cover(box(10.1, -180, 19.9, -170.3, false), precision));
+            for (FillRule rule : FillRule.values()) {
+                assertEquals(expected, assertEnginesAgree(new PreparedPolygon(polygon, rule), precision));
+            }
+        }
+        PreparedPolygon prepared = new PreparedPolygon(polygon, FillRule.EVEN_ODD);
+        assertTrue(prepared.contains(15, 179.9));
+        assertTrue(prepared.contains(15, -179.9));
+        assertFalse(prepared.contains(15, 0));
+        CellSet touching = GeoHashesInPolygon.coverage(prepared, 3, GeoHashesInPolygon.Cover.TOUCHING);
+        assertTrue(touching.contains(10.1, -170.3));
+        assertTrue(touching.contains(19.9, 170.3));
+    }
+
+    @Test
+    public void testPlanarByDefault() {
+        // a box around the world and one over 180 degrees wide keep their planar meaning
+        PackedRing world = PackedRing.of(-80, -180, -80, 180, 80, 180, 80, -180);
+        PackedRing wide = box(-20.5, -100, 30.5, 100, false);
+        assertArrayEquals(new double[]{-80, -180, 80, 180}, GeoHashUtils.polyToBB(MultiPolygon.of(world)), 0);
+        assertArrayEquals(new double[]{-20.5, -100, 30.5, 100}, GeoHashUtils.polyToBB(MultiPolygon.of(wide)), 0);
+        for (int precision = 1; precision <= 3; precision++) {
+            for (PackedRing ring : new PackedRing[]{world, wide}) {
+                Set<String> expected = cover(ring, precision);
+                assertFalse(expected.isEmpty());
+                for (FillRule rule : FillRule.values()) {
+                    assertEquals(expected, assertEnginesAgree(new PreparedPolygon(MultiPolygon.of(ring), rule),
+                            precision));
+                }
+            }
+        }
+        PreparedPolygon prepared = new PreparedPolygon(MultiPolygon.of(wide), FillRule.EVEN_ODD);
+        assertTrue(prepared.contains(0, 0));
+        assertFalse(prepared.contains(0, 150));
+        // asked for, the same box is joined the shorter way around, across the antimeridian
+        PreparedPolygon wrapped = new PreparedPolygon(MultiPolygon.wrapping(wide), FillRule.EVEN_ODD);
+        assertFalse(wrapped.contains(0, 0));
+        assertTrue(wrapped.contains(0, 150));
+    }
+
+    @Test
+    public void testUnwrap() {
+        assertEquals(185, GeoHashUtils.unwrap(175, -175), 1e-9);
+        assertEquals(-185, GeoHashUtils.unwrap(-175, 175), 1e-9);
+        assertEquals(190, GeoHashUtils.unwrap(185, -170), 1e-9);
+        assertEquals(-104.6, GeoHashUtils.unwrap(-109.3, -104.6), 0);
+        assertEquals(-109.3, GeoHashUtils.unwrap(-104.6, -109.3), 0);
+    }
+
+    @Test
+    public void testRandomRings() {
+        Random random = new Random(67);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] outer = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), i % 3 == 0);
+            Coordinates[] other = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), false);
+            MultiPolygon polygon = MultiPolygon.of(outer).and(PackedRing.of(other));
+            int precision = 1 + random.nextInt(4);
+            for (FillRule rule : FillRule.values()) {
+                assertEnginesAgree(new PreparedPolygon(polygon, rule), precision);
+            }
+            // rings taken as given match the point in polygon test over all of them
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(outer, precision, Engine.POINT_IN_POLYGON),
+                    GeoHashesInPolygon.geohashesInPolygon(new PreparedPolygon(FillRule.EVEN_ODD, PackedRing.of(outer)),
+                            precision));
+        }
+    }
+
+}
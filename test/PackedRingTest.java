@@ -0,0 +1,80 @@
+import coords.Coordinates;
+import coords.PackedRing;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.GeoHashesInPolygon.Engine;
+import polygon.PointInPolygon;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class PackedRingTest {
+
+    @Test
+    public void testMatchesCoordinates() {
+        Random random = new Random(41);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(40), i % 3 == 0);
+            PackedRing ring = PackedRing.of(polygon);
+            assertEquals(polygon.length, ring.size());
+            assertArrayEquals(GeoHashUtils.polyToBB(polygon), GeoHashUtils.polyToBB(ring), 0);
+
+            double[] bounding = GeoHashUtils.polyToBB(polygon);
+            for (int k = 0; k < 200; k++) {
+                double lat = bounding[0] + random.nextDouble() * (bounding[2] - bounding[0]);
+                double lon = bounding[1] + random.nextDouble() * (bounding[3] - bounding[1]);
+                assertEquals(PointInPolygon.pointInPolygon(lon, lat, polygon), PointInPolygon.pointInPolygon(lon, lat, ring));
+            }
+
+            int precision = 1 + random.nextInt(5);
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, precision),
+                    GeoHashesInPolygon.geohashesInPolygon(ring, precision));
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, precision, Engine.POINT_IN_POLYGON),
+                    GeoHashesInPolygon.geohashesInPolygon(ring, precision, Engine.POINT_IN_POLYGON));
+        }
+        assertEquals(GeoHashesInPolygon.hashesInPoly(ScanlineRasterizerTest.WEIRD),
+                GeoHashesInPolygon.hashesInPoly(PackedRing.of(ScanlineRasterizerTest.WEIRD)));
+    }
+
+    @Test
+    public void testPrimitiveInput() {
+        PackedRing interleaved = PackedRing.of(39.5, -106.1, 40.9, -106.1, 40.9, -103.8, 39.5, -103.8);
+        PackedRing columns = PackedRing.of(new double[]{39.5, 40.9, 40.9, 39.5}, new double[]{-106.1, -106.1, -103.8, -103.8});
+        assertEquals(interleaved, columns);
+        assertEquals(interleaved, PackedRing.of(interleaved.toCoordinates()));
+        assertEquals(-103.8, interleaved.longitude(2), 0);
+    }
+
+    @Test
+    public void testDecodeWithErrorInPlace() {
+        Random random = new Random(43);
+        double[] decoded = new double[8];
+        for (int i = 0; i < 5000; i++) {
+            String hash = GeoHash.encode(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180,
+                    1 + random.nextInt(GeoHash.MAX_PRECISION));
+            GeoHashUtils.decodeWithError(GeoHash.toCell(hash), decoded, 4);
+
+            // the same values as from the bounding box
+            double[] bbox = GeoHash.decode_bbox(hash);
+            double lat = (bbox[0] + bbox[2]) / 2;
+            double lon = (bbox[1] + bbox[3]) / 2;
+            assertArrayEquals(new double[]{lat, lon, bbox[2] - lat, bbox[3] - lon},
+                    new double[]{decoded[4], decoded[5], decoded[6], decoded[7]}, 0);
+
+            Coordinates coordinates = GeoHashUtils.decodeWithError(hash);
+            assertEquals(lat, coordinates.getLatitude(), 0);
+            assertEquals(bbox[3] - lon, coordinates.getError().getLon(), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddLength() {
+        PackedRing.of(1, 2, 3);
+    }
+
+}
@@ -0,0 +1,49 @@
+import coords.Coordinates;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.ParallelRasterizer;
+import polygon.PreparedPolygon;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class ParallelCoverageTest {
+
+    @Test
+    public void testMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(31);
+            for (int i = 0; i < 100; i++) {
+                Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(50), i % 3 == 0);
+                int precision = 1 + random.nextInt(5);
+                assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, precision),
+                        GeoHashesInPolygon.parallelGeohashesInPolygon(new PreparedPolygon(polygon), precision, pool, 0));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallPolygonsStaySequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Coordinates[] polygon : new Coordinates[][]{
+                    ScanlineRasterizerTest.WYOMING_CO, ScanlineRasterizerTest.WEIRD, ScanlineRasterizerTest.NO_CO}) {
+                assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, 5),
+                        GeoHashesInPolygon.parallelGeohashesInPolygon(new PreparedPolygon(polygon), 5, pool,
+                                ParallelRasterizer.DEFAULT_THRESHOLD));
+            }
+            // nothing was handed to the pool, so it never started a worker
+            assertEquals(0, pool.getPoolSize());
+            assertEquals(0, pool.getStealCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+import coords.Coordinates;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.PrecisionSelector;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class PrecisionSelectorTest {
+
+    @Test
+    public void testEstimateBoundsCover() {
+        Random random = new Random(31);
+        for (int i = 0; i < 200; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(40), false);
+            PrecisionSelector selector = new PrecisionSelector(polygon);
+            for (int precision = 1; precision <= 5; precision++) {
+                long estimate = selector.estimateCells(precision);
+                long actual = GeoHashesInPolygon.cells(polygon, precision).count();
+                assertTrue(actual + " > " + estimate, actual <= estimate);
+                assertTrue(estimate <= selector.boundingBoxCells(precision));
+            }
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        Random random = new Random(37);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(20), false);
+            PrecisionSelector selector = new PrecisionSelector(polygon);
+            long budget = 100 + random.nextInt(20000);
+            int precision = selector.forCellBudget(budget);
+            if (precision > 1) {
+                assertTrue(GeoHashesInPolygon.cells(polygon, precision).count() <= budget);
+            }
+            if (precision < 12) {
+                assertTrue(selector.estimateCells(precision + 1) > budget);
+            }
+            assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, precision),
+                    GeoHashesInPolygon.geohashesWithinBudget(polygon, budget));
+        }
+    }
+
+    @Test
+    public void testLatency() {
+        PrecisionSelector selector = new PrecisionSelector(ScanlineRasterizerTest.NO_CO);
+        int fast = selector.forLatency(100_000);
+        int slow = selector.forLatency(100_000_000);
+        assertTrue(fast < slow);
+        assertTrue(selector.estimateNanos(slow, PrecisionSelector.DEFAULT_NANOS_PER_CELL,
+                PrecisionSelector.DEFAULT_NANOS_PER_CROSSING) <= 100_000_000);
+        assertEquals(1, selector.forLatency(1));
+    }
+
+}
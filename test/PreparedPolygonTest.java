@@ -0,0 +1,47 @@
+import coords.Coordinates;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+import polygon.PointInPolygon;
+import polygon.PreparedPolygon;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class PreparedPolygonTest {
+
+    @Test
+    public void testMatchesPointInPolygon() {
+        Random random = new Random(29);
+        for (int p = 0; p < 50; p++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(500), p % 2 == 0);
+            PreparedPolygon prepared = new PreparedPolygon(polygon);
+            double[] bbox = prepared.boundingBox();
+            for (int i = 0; i < 2000; i++) {
+                double lat = bbox[0] - 1 + random.nextDouble() * (bbox[2] - bbox[0] + 2);
+                double lon = bbox[1] - 1 + random.nextDouble() * (bbox[3] - bbox[1] + 2);
+                assertEquals(PointInPolygon.pointInPolygon(lon, lat, polygon), prepared.contains(lat, lon));
+            }
+        }
+    }
+
+    @Test
+    public void testVertices() {
+        PreparedPolygon prepared = new PreparedPolygon(ScanlineRasterizerTest.WEIRD);
+        for (Coordinates vertex : ScanlineRasterizerTest.WEIRD) {
+            assertEquals(GeoHashUtils.inside(vertex, ScanlineRasterizerTest.WEIRD),
+                    GeoHashUtils.inside(vertex, prepared));
+        }
+        assertEquals(ScanlineRasterizerTest.WEIRD.length, prepared.size());
+    }
+
+    @Test
+    public void testDegeneratePolygons() {
+        PreparedPolygon flat = new PreparedPolygon(new Coordinates[]{
+                new Coordinates(10f, 10f), new Coordinates(10f, 20f), new Coordinates(10f, 30f)});
+        assertEquals(false, flat.contains(10, 15));
+        assertEquals(false, new PreparedPolygon(new Coordinates[0]).contains(0, 0));
+    }
+
+}
@@ -0,0 +1,112 @@
+import coords.Coordinates;
+import org.junit.Test;
+import polygon.PointInPolygon;
+import polygon.RegionIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class RegionIndexTest {
+
+    private static int[] bruteForce(Map<Integer, Coordinates[]> regions, double lat, double lon) {
+        return regions.entrySet().stream()
+                .filter(region -> PointInPolygon.pointInPolygon(lon, lat, region.getValue()))
+                .mapToInt(Map.Entry::getKey).sorted().toArray();
+    }
+
+    private static int[] sorted(int[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static Map<Integer, Coordinates[]> randomRegions(Random random, int count) {
+        Map<Integer, Coordinates[]> regions = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            regions.put(1000 + i, ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), i % 5 == 0));
+        }
+        return regions;
+    }
+
+    @Test
+    public void testMatchesPointInPolygon() {
+        Random random = new Random(59);
+        Map<Integer, Coordinates[]> regions = randomRegions(random, 200);
+        regions.put(1, ScanlineRasterizerTest.WYOMING_CO);
+        regions.put(2, ScanlineRasterizerTest.WEIRD);
+        regions.put(3, ScanlineRasterizerTest.NO_CO);
+        RegionIndex index = new RegionIndex(regions, 4);
+        assertEquals(regions.size(), index.size());
+
+        for (int i = 0; i < 20000; i++) {
+            double lat = i % 2 == 0 ? 38 + random.nextDouble() * 7 : random.nextDouble() * 140 - 70;
+            double lon = i % 2 == 0 ? -110 + random.nextDouble() * 8 : random.nextDouble() * 320 - 160;
+            assertArrayEquals(bruteForce(regions, lat, lon), sorted(index.regionsContaining(lat, lon)));
+        }
+    }
+
+    @Test
+    public void testBackgroundRebuild() throws Exception {
+        Random random = new Random(61);
+        Map<Integer, Coordinates[]> first = randomRegions(random, 20);
+        Map<Integer, Coordinates[]> second = randomRegions(random, 30);
+        RegionIndex index = new RegionIndex(first, 3);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            index.rebuildAsync(second, executor).get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(30, index.size());
+        for (int i = 0; i < 2000; i++) {
+            double lat = random.nextDouble() * 140 - 70;
+            double lon = random.nextDouble() * 320 - 160;
+            assertArrayEquals(bruteForce(second, lat, lon), sorted(index.regionsContaining(lat, lon)));
+        }
+    }
+
+    @Test
+    public void testRebuildsFinishingOutOfOrder() throws Exception {
+        Random random = new Random(67);
+        Map<Integer, Coordinates[]> older = randomRegions(random, 20);
+        Map<Integer, Coordinates[]> newer = randomRegions(random, 30);
+        RegionIndex index = new RegionIndex(randomRegions(random, 10), 3);
+        List<Runnable> olderTasks = new ArrayList<>();
+        List<Runnable> newerTasks = new ArrayList<>();
+        CompletableFuture<Void> olderBuilt = index.rebuildAsync(older, olderTasks::add);
+        CompletableFuture<Void> newerBuilt = index.rebuildAsync(newer, newerTasks::add);
+
+        newerTasks.forEach(Runnable::run);
+        newerBuilt.get();
+        assertEquals(30, index.size());
+        // the rebuild asked for first finishes last and is dropped
+        olderTasks.forEach(Runnable::run);
+        olderBuilt.get();
+        assertEquals(30, index.size());
+        for (int i = 0; i < 2000; i++) {
+            double lat = random.nextDouble() * 140 - 70;
+            double lon = random.nextDouble() * 320 - 160;
+            assertArrayEquals(bruteForce(newer, lat, lon), sorted(index.regionsContaining(lat, lon)));
+        }
+
+        // a rebuild on the calling thread is newer than any still running
+        olderTasks.clear();
+        CompletableFuture<Void> pending = index.rebuildAsync(older, olderTasks::add);
+        index.rebuild(newer);
+        olderTasks.forEach(Runnable::run);
+        assertTrue(pending.isDone());
+        assertEquals(30, index.size());
+    }
+
+}
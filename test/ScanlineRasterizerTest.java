@@ -0,0 +1,115 @@
+import coords.Coordinates;
+import geohash.GeoHash;
+import geohash.GeoHashUtils;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.GeoHashesInPolygon.Engine;
+import polygon.PointInPolygon;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class ScanlineRasterizerTest {
+
+    static final Coordinates[] WYOMING_CO = {
+            new Coordinates(44.99588261816546f, -109.248046875f),
+            new Coordinates(38.238180119798635f, -109.1162109375f),
+            new Coordinates(38.41055825094609f, -102.83203125f)
+    };
+
+    static final Coordinates[] WEIRD = {
+            new Coordinates(40.6639728763869f, -105.0567626953125f),
+            new Coordinates(40.49918094806632f, -105.38360595703125f),
+            new Coordinates(40.0717663466261f, -104.4854736328125f),
+            new Coordinates(40.29419163838167f, -104.47448730468749f),
+            new Coordinates(40.30466538259176f, -104.765625f),
+            new Coordinates(40.47202439692057f, -104.6392822265625f),
+            new Coordinates(40.46575594018434f, -104.94415283203125f)
+    };
+
+    static final Coordinates[] NO_CO = {
+            new Coordinates(39.56758783088903f, -106.1444091796875f),
+            new Coordinates(40.942564441333296f, -106.1444091796875f),
+            new Coordinates(40.942564441333296f, -103.88671875f),
+            new Coordinates(39.56758783088903f, -103.88671875f)
+    };
+
+    /**
+     * a random polygon around a center, self intersecting when shuffled is set
+     */
+    static Coordinates[] randomPolygon(Random random, int vertices, boolean shuffled) {
+        double centerLat = random.nextDouble() * 120 - 60;
+        double centerLon = random.nextDouble() * 300 - 150;
+        double radius = 0.01 + random.nextDouble() * 20;
+        Coordinates[] polygon = new Coordinates[vertices];
+        for (int i = 0; i < vertices; i++) {
+            double angle = shuffled ? random.nextDouble() * 2 * Math.PI : 2 * Math.PI * i / vertices;
+            double r = radius * (0.3 + 0.7 * random.nextDouble());
+            polygon[i] = new Coordinates(centerLat + r * Math.sin(angle), centerLon + r * Math.cos(angle), 0, 0);
+        }
+        return polygon;
+    }
+
+    /**
+     * every cell of the bounding box tested directly with {@link PointInPolygon}
+     */
+    static Set<String> referenceCover(Coordinates[] polygon, int precision) {
+        double[] bounding = GeoHashUtils.polyToBB(polygon);
+        Set<String> hashes = new HashSet<>();
+        for (long row = GeoHash.latIndex(bounding[0], precision); row <= GeoHash.latIndex(bounding[2], precision); row++) {
+            for (long column = GeoHash.lonIndex(bounding[1], precision);
+                 column <= GeoHash.lonIndex(bounding[3], precision); column++) {
+                double[] bbox = new double[4];
+                GeoHash.decodeCell(GeoHash.cellAt(row, column, precision), bbox);
+                double[] center = {(bbox[1] + bbox[3]) / 2, (bbox[0] + bbox[2]) / 2};
+                if (PointInPolygon.pointInPolygon(center, polygon)) {
+                    hashes.add(GeoHash.toGeoHash(GeoHash.cellAt(row, column, precision)));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static void assertSameCover(Coordinates[] polygon, int precision) {
+        Set<String> expected = referenceCover(polygon, precision);
+        assertEquals(expected, GeoHashesInPolygon.geohashesInPolygon(polygon, precision, Engine.POINT_IN_POLYGON));
+        assertEquals(expected, GeoHashesInPolygon.geohashesInPolygon(polygon, precision, Engine.SCANLINE));
+    }
+
+    @Test
+    public void testMatchesPointInPolygonOnSamples() {
+        for (Coordinates[] polygon : new Coordinates[][]{WYOMING_CO, WEIRD, NO_CO}) {
+            for (int precision = 1; precision <= 6; precision++) {
+                assertSameCover(polygon, precision);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesPointInPolygonOnRandomPolygons() {
+        Random random = new Random(17);
+        for (int i = 0; i < 200; i++) {
+            Coordinates[] polygon = randomPolygon(random, 3 + random.nextInt(40), i % 3 == 0);
+            assertSameCover(polygon, 1 + random.nextInt(5));
+        }
+    }
+
+    @Test
+    public void testVerticesOnCellBoundaries() {
+        // a square whose edges lie exactly on precision 2 cell boundaries
+        Coordinates[] aligned = {
+                new Coordinates(0f, 0f),
+                new Coordinates(5.625f, 0f),
+                new Coordinates(5.625f, 22.5f),
+                new Coordinates(0f, 22.5f)
+        };
+        for (int precision = 1; precision <= 5; precision++) {
+            assertSameCover(aligned, precision);
+        }
+    }
+
+}
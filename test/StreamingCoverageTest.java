@@ -0,0 +1,55 @@
+import coords.Coordinates;
+import geohash.GeoHash;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.PreparedPolygon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class StreamingCoverageTest {
+
+    @Test
+    public void testLexicographicOrder() {
+        Random random = new Random(37);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(30), i % 3 == 0);
+            int precision = 1 + random.nextInt(5);
+            List<String> expected = GeoHashesInPolygon.geohashesInPolygon(polygon, precision).stream()
+                    .sorted().collect(Collectors.toList());
+            List<String> streamed = GeoHashesInPolygon.cells(polygon, precision)
+                    .mapToObj(GeoHash::toGeoHash).collect(Collectors.toList());
+            assertEquals(expected, streamed);
+        }
+    }
+
+    @Test
+    public void testEarlyTermination() {
+        PreparedPolygon polygon = new PreparedPolygon(ScanlineRasterizerTest.WYOMING_CO);
+        List<String> hashes = new ArrayList<>();
+        boolean completed = GeoHashesInPolygon.forEachGeohash(polygon, 7, hash -> {
+            hashes.add(hash.toString());
+            return hashes.size() < 10;
+        });
+        assertFalse(completed);
+        assertEquals(10, hashes.size());
+        assertEquals(GeoHashesInPolygon.cells(polygon, 7).limit(10)
+                .mapToObj(GeoHash::toGeoHash).collect(Collectors.toList()), hashes);
+    }
+
+    @Test
+    public void testVisitsEveryCell() {
+        PreparedPolygon polygon = new PreparedPolygon(ScanlineRasterizerTest.WEIRD);
+        long[] count = {0};
+        assertTrue(GeoHashesInPolygon.forEachCell(polygon, 5, cell -> ++count[0] > 0));
+        assertEquals(GeoHashesInPolygon.geohashesInPolygon(polygon, 5).size(), count[0]);
+    }
+
+}
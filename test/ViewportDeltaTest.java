@@ -0,0 +1,66 @@
+import coords.Coordinates;
+import geohash.CellSet;
+import org.junit.Test;
+import polygon.GeoHashesInPolygon;
+import polygon.ViewportDelta;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class ViewportDeltaTest {
+
+    private static Coordinates[] moved(Coordinates[] polygon, double dLat, double dLon, double scale) {
+        Coordinates[] result = new Coordinates[polygon.length];
+        for (int i = 0; i < polygon.length; i++) {
+            result[i] = new Coordinates(polygon[i].getLatitude() * scale + dLat,
+                    polygon[i].getLongitude() * scale + dLon, 0, 0);
+        }
+        return result;
+    }
+
+    private static void assertDelta(Coordinates[] previous, Coordinates[] next, int precision) {
+        CellSet before = GeoHashesInPolygon.coverage(previous, precision);
+        CellSet after = GeoHashesInPolygon.coverage(next, precision);
+        ViewportDelta delta = ViewportDelta.between(previous, before, next, precision);
+        assertEquals(after.difference(before), delta.getAdded());
+        assertEquals(before.difference(after), delta.getRemoved());
+        assertEquals(after, delta.getCover());
+    }
+
+    @Test
+    public void testPanAndZoom() {
+        Coordinates[] viewport = ScanlineRasterizerTest.NO_CO;
+        assertDelta(viewport, moved(viewport, 0.05, 0.1, 1), 5);
+        assertDelta(viewport, moved(viewport, -0.3, 0, 1), 6);
+        assertDelta(viewport, moved(viewport, 0.2, 0.2, 0.995), 5);
+        assertDelta(ScanlineRasterizerTest.WEIRD, moved(ScanlineRasterizerTest.WEIRD, 0.01, -0.02, 1), 6);
+    }
+
+    @Test
+    public void testRandomMoves() {
+        Random random = new Random(43);
+        for (int i = 0; i < 100; i++) {
+            Coordinates[] polygon = ScanlineRasterizerTest.randomPolygon(random, 3 + random.nextInt(20), i % 3 == 0);
+            Coordinates[] next = moved(polygon, random.nextGaussian(), random.nextGaussian(), 1);
+            assertDelta(polygon, next, 1 + random.nextInt(4));
+        }
+    }
+
+    @Test
+    public void testMovingOneVertexOnlyTouchesItsRows() {
+        Coordinates[] polygon = ScanlineRasterizerTest.WEIRD.clone();
+        Coordinates[] next = polygon.clone();
+        next[2] = new Coordinates(40.0717663466261, -104.4, 0, 0);
+        assertDelta(polygon, next, 6);
+
+        CellSet cover = GeoHashesInPolygon.coverage(polygon, 6);
+        ViewportDelta unchanged = ViewportDelta.between(polygon, cover, polygon, 6);
+        assertTrue(unchanged.getAdded().isEmpty());
+        assertTrue(unchanged.getRemoved().isEmpty());
+        assertEquals(cover, unchanged.getCover());
+    }
+
+}